@@ -0,0 +1,61 @@
+package com.hotelbooking.api.benchmarks;
+
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Payloads taken from the PartialUpdateBookingTest.generateSuccessData cases
+public class BenchmarkData {
+
+    public static Booking booking(String kind) {
+        Booking booking = Booking.builder()
+                .firstname("John")
+                .lastname("Smith")
+                .totalprice(100)
+                .depositpaid(true)
+                .bookingdates(bookingDates())
+                .additionalneeds("Breakfast")
+                .build();
+
+        switch (kind) {
+            case "average":
+                return booking;
+            case "unicode":
+                return booking.toBuilder()
+                        .firstname("有錢")
+                        .lastname("人")
+                        .additionalneeds("包羅萬象")
+                        .build();
+            case "long":
+                return booking.toBuilder()
+                        .firstname("John".repeat(200))
+                        .lastname("Smith".repeat(200))
+                        .additionalneeds("Breakfast".repeat(200))
+                        .build();
+            default:
+                throw new IllegalArgumentException("Unknown booking kind " + kind);
+        }
+    }
+
+    public static Booking.BookingDates bookingDates() {
+        return Booking.BookingDates.builder()
+                .checkin("2023-06-01")
+                .checkout("2023-06-08")
+                .build();
+    }
+
+    // The /booking response: only ids, the booking field stays null
+    public static CreatedBooking[] bookingIds(int size) {
+        CreatedBooking[] bookings = new CreatedBooking[size];
+        for (int i = 0; i < size; i++) {
+            bookings[i] = CreatedBooking.builder().bookingid(i + 1).build();
+        }
+        return bookings;
+    }
+
+    public static List<CreatedBooking> bookingIdList(int size) {
+        return new ArrayList<>(List.of(bookingIds(size)));
+    }
+}
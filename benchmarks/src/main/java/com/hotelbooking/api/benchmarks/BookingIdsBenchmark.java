@@ -0,0 +1,111 @@
+package com.hotelbooking.api.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hotelbooking.api.client.BookingIdReader;
+import com.hotelbooking.api.model.CreatedBooking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+// Large /booking responses as CreatedBooking[] (JSON) and a list of bookings in XML
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// JAXB 2.3 bytecode injection doesn't work on recent JDKs, reflection is used instead
+@Fork(value = 1, jvmArgsAppend = "-Dcom.sun.xml.bind.v2.bytecode.ClassTailor.noOptimize=true")
+public class BookingIdsBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader arrayReader = mapper.readerFor(CreatedBooking[].class);
+
+    private Marshaller marshaller;
+    private Unmarshaller unmarshaller;
+
+    private CreatedBooking[] bookings;
+    private BookingIds bookingList;
+    private byte[] json;
+    private byte[] xml;
+
+    @Setup
+    public void setup() throws Exception {
+        JAXBContext context = JAXBContext.newInstance(BookingIds.class);
+        marshaller = context.createMarshaller();
+        unmarshaller = context.createUnmarshaller();
+
+        bookings = BenchmarkData.bookingIds(size);
+        bookingList = new BookingIds();
+        bookingList.bookings = BenchmarkData.bookingIdList(size);
+        json = mapper.writeValueAsBytes(bookings);
+        xml = BookingXmlBenchmark.marshal(marshaller, bookingList);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws Exception {
+        return mapper.writeValueAsBytes(bookings);
+    }
+
+    @Benchmark
+    public CreatedBooking[] deserializeJson() throws Exception {
+        return mapper.readValue(json, CreatedBooking[].class);
+    }
+
+    @Benchmark
+    public CreatedBooking[] deserializeJsonReader() throws Exception {
+        return arrayReader.readValue(json);
+    }
+
+    @Benchmark
+    public long streamIds() {
+        try (IntStream ids = BookingIdReader.stream(new ByteArrayInputStream(json), false)) {
+            return ids.asLongStream().sum();
+        }
+    }
+
+    // the same with booking-ids.json validation, in chunks of elements
+    @Benchmark
+    public long streamIdsValidated() {
+        try (IntStream ids = BookingIdReader.stream(new ByteArrayInputStream(json), true)) {
+            return ids.asLongStream().sum();
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeXml() throws Exception {
+        return BookingXmlBenchmark.marshal(marshaller, bookingList);
+    }
+
+    @Benchmark
+    public Object deserializeXml() throws Exception {
+        return unmarshaller.unmarshal(new ByteArrayInputStream(xml));
+    }
+
+    @XmlRootElement(name = "bookings")
+    public static class BookingIds {
+        @XmlElement(name = "booking")
+        public List<CreatedBooking> bookings;
+    }
+}
@@ -0,0 +1,87 @@
+package com.hotelbooking.api.benchmarks;
+
+import com.hotelbooking.api.client.BookingIdSet;
+import com.hotelbooking.api.client.BookingIndex;
+import com.hotelbooking.api.model.Booking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Expected /booking filter results from a BookingIndex snapshot, compared with a scan over the Booking objects
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingIndexBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    private Map<Integer, Booking> bookings;
+    private BookingIndex index;
+
+    private final Map<String, Object> byName = new HashMap<>();
+    private final Map<String, Object> byDates = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        LocalDate first = LocalDate.parse("2018-01-01");
+        bookings = new HashMap<>();
+        for (int id = 1; id <= size; id++) {
+            LocalDate checkin = first.plusDays(random.nextInt(2000));
+            bookings.put(id, Booking.builder()
+                    .firstname("First" + random.nextInt(500))
+                    .lastname("Last" + random.nextInt(5000))
+                    .totalprice(random.nextInt(1000))
+                    .depositpaid(random.nextBoolean())
+                    .bookingdates(Booking.BookingDates.builder()
+                            .checkin(checkin.toString())
+                            .checkout(checkin.plusDays(1 + random.nextInt(14)).toString())
+                            .build())
+                    .build());
+        }
+        index = BookingIndex.of(bookings);
+
+        byName.put("firstname", "First7");
+        byName.put("lastname", "Last42");
+        byDates.put("checkin", "2023-01-01");
+        byDates.put("checkout", "2023-02-01");
+    }
+
+    @Benchmark
+    public BookingIdSet indexByName() {
+        return index.expectedIds(byName);
+    }
+
+    @Benchmark
+    public BookingIdSet indexByDates() {
+        return index.expectedIds(byDates);
+    }
+
+    @Benchmark
+    public BookingIdSet scanByDates() {
+        LocalDate checkin = LocalDate.parse("2023-01-01");
+        LocalDate checkout = LocalDate.parse("2023-02-01");
+        return BookingIdSet.of(bookings.entrySet().stream()
+                .filter(entry -> LocalDate.parse(entry.getValue().getBookingdates().getCheckin()).isAfter(checkin))
+                .filter(entry -> LocalDate.parse(entry.getValue().getBookingdates().getCheckout()).isBefore(checkout))
+                .mapToInt(Map.Entry::getKey));
+    }
+}
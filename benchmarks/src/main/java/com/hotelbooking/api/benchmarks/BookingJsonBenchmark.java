@@ -0,0 +1,100 @@
+package com.hotelbooking.api.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.hotelbooking.api.client.ResponseSchema;
+import com.hotelbooking.api.model.Booking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Booking and BookingDates JSON (de)serialization:
+// shared ObjectMapper, pre-bound ObjectReader/ObjectWriter and a new mapper per call
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingJsonBenchmark {
+
+    @Param({"average", "unicode", "long"})
+    public String kind;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader bookingReader = mapper.readerFor(Booking.class);
+    private final ObjectWriter bookingWriter = mapper.writerFor(Booking.class);
+
+    private Booking booking;
+    private byte[] bookingJson;
+    private String bookingJsonText;
+    private Booking.BookingDates bookingDates;
+    private byte[] bookingDatesJson;
+
+    @Setup
+    public void setup() throws Exception {
+        booking = BenchmarkData.booking(kind);
+        bookingJson = mapper.writeValueAsBytes(booking);
+        bookingJsonText = new String(bookingJson, StandardCharsets.UTF_8);
+        bookingDates = BenchmarkData.bookingDates();
+        bookingDatesJson = mapper.writeValueAsBytes(bookingDates);
+    }
+
+    @Benchmark
+    public byte[] serializeSharedMapper() throws Exception {
+        return mapper.writeValueAsBytes(booking);
+    }
+
+    @Benchmark
+    public byte[] serializeWriter() throws Exception {
+        return bookingWriter.writeValueAsBytes(booking);
+    }
+
+    @Benchmark
+    public byte[] serializeNewMapper() throws Exception {
+        return new ObjectMapper().writeValueAsBytes(booking);
+    }
+
+    @Benchmark
+    public Booking deserializeSharedMapper() throws Exception {
+        return mapper.readValue(bookingJson, Booking.class);
+    }
+
+    @Benchmark
+    public Booking deserializeReader() throws Exception {
+        return bookingReader.readValue(bookingJson);
+    }
+
+    // parsed once into a tree, validated against the compiled booking.json and mapped from the tree
+    @Benchmark
+    public Booking deserializeValidated() {
+        return ResponseSchema.BOOKING.read(bookingJsonText, Booking.class);
+    }
+
+    @Benchmark
+    public Booking deserializeNewMapper() throws Exception {
+        return new ObjectMapper().readValue(bookingJson, Booking.class);
+    }
+
+    @Benchmark
+    public byte[] serializeBookingDates() throws Exception {
+        return mapper.writeValueAsBytes(bookingDates);
+    }
+
+    @Benchmark
+    public Booking.BookingDates deserializeBookingDates() throws Exception {
+        return mapper.readValue(bookingDatesJson, Booking.BookingDates.class);
+    }
+}
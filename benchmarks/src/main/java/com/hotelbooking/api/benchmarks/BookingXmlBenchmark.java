@@ -0,0 +1,120 @@
+package com.hotelbooking.api.benchmarks;
+
+import com.hotelbooking.api.client.BookingXmlCodec;
+import com.hotelbooking.api.model.Booking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+// JAXB path used by partialUpdateBookingXml: a context per call (what happens without caching),
+// a cached context with a marshaller per call, a cached context with reused marshaller/unmarshaller,
+// and BookingXmlCodec (pooled marshallers, StAX input). Run with -t 4 to see the pool under contention.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// JAXB 2.3 bytecode injection doesn't work on recent JDKs, reflection is used instead
+@Fork(value = 1, jvmArgsAppend = "-Dcom.sun.xml.bind.v2.bytecode.ClassTailor.noOptimize=true")
+public class BookingXmlBenchmark {
+
+    private static final QName BOOKING_DATES = new QName("bookingdates");
+
+    @Param({"average", "unicode", "long"})
+    public String kind;
+
+    private JAXBContext context;
+    private Marshaller marshaller;
+    private Unmarshaller unmarshaller;
+
+    private Booking booking;
+    private byte[] bookingXml;
+    private Booking.BookingDates bookingDates;
+    private byte[] bookingDatesXml;
+
+    @Setup
+    public void setup() throws Exception {
+        context = JAXBContext.newInstance(Booking.class);
+        marshaller = context.createMarshaller();
+        unmarshaller = context.createUnmarshaller();
+
+        booking = BenchmarkData.booking(kind);
+        bookingXml = marshal(marshaller, booking);
+        bookingDates = BenchmarkData.bookingDates();
+        bookingDatesXml = marshal(marshaller, new JAXBElement<>(BOOKING_DATES, Booking.BookingDates.class, bookingDates));
+    }
+
+    @Benchmark
+    public byte[] serializeNewContext() throws Exception {
+        return marshal(JAXBContext.newInstance(Booking.class).createMarshaller(), booking);
+    }
+
+    @Benchmark
+    public byte[] serializeCachedContext() throws Exception {
+        return marshal(context.createMarshaller(), booking);
+    }
+
+    @Benchmark
+    public byte[] serializeReusedMarshaller() throws Exception {
+        return marshal(marshaller, booking);
+    }
+
+    @Benchmark
+    public Object deserializeNewContext() throws Exception {
+        return JAXBContext.newInstance(Booking.class).createUnmarshaller().unmarshal(new ByteArrayInputStream(bookingXml));
+    }
+
+    @Benchmark
+    public Object deserializeCachedContext() throws Exception {
+        return context.createUnmarshaller().unmarshal(new ByteArrayInputStream(bookingXml));
+    }
+
+    @Benchmark
+    public Object deserializeReusedUnmarshaller() throws Exception {
+        return unmarshaller.unmarshal(new ByteArrayInputStream(bookingXml));
+    }
+
+    @Benchmark
+    public byte[] serializeCodec() {
+        return BookingXmlCodec.toXml(booking);
+    }
+
+    @Benchmark
+    public Booking deserializeCodec() {
+        return BookingXmlCodec.readBooking(bookingXml);
+    }
+
+    @Benchmark
+    public byte[] serializeBookingDates() throws Exception {
+        return marshal(marshaller, new JAXBElement<>(BOOKING_DATES, Booking.BookingDates.class, bookingDates));
+    }
+
+    @Benchmark
+    public Booking.BookingDates deserializeBookingDates() throws Exception {
+        return unmarshaller.unmarshal(new StreamSource(new ByteArrayInputStream(bookingDatesXml)), Booking.BookingDates.class).getValue();
+    }
+
+    static byte[] marshal(Marshaller marshaller, Object value) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        marshaller.marshal(value, out);
+        return out.toByteArray();
+    }
+}
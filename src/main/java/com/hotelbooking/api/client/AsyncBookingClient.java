@@ -0,0 +1,356 @@
+package com.hotelbooking.api.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotelbooking.api.metrics.ClientMetrics;
+import com.hotelbooking.api.model.Auth;
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+
+import javax.net.ssl.SSLSession;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+
+// Non-blocking counterpart of BookingClient built on java.net.http.
+// All instances share one HttpClient, so connections are kept alive and reused (HTTP/2 where the host supports it),
+// and the number of requests in flight is bounded by booker.async.max.concurrency and the shared ConcurrencyLimiter.
+public class AsyncBookingClient {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final ReentrantLock SHARED_CLIENT_LOCK = new ReentrantLock();
+    private static HttpClient sharedHttpClient;
+
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    // null when booker.cassette.mode is off
+    private final CassetteFilter cassette;
+    private final int maxConcurrency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    public AsyncBookingClient() {
+        this(loadIntProperty("booker.async.max.concurrency", 256));
+    }
+
+    public AsyncBookingClient(int maxConcurrency) {
+        this(BookingClient.baseUrl(), maxConcurrency);
+    }
+
+    // A client of another host than the configured one, e.g. a BookerStubServer started by a test
+    public AsyncBookingClient(String baseUrl, int maxConcurrency) {
+        this(baseUrl, maxConcurrency, CassetteFilter.configured());
+    }
+
+    AsyncBookingClient(String baseUrl, int maxConcurrency, CassetteFilter cassette) {
+        this.baseUrl = baseUrl;
+        this.httpClient = sharedHttpClient();
+        this.cassette = cassette;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    static HttpClient sharedHttpClient() {
+        SHARED_CLIENT_LOCK.lock();
+        try {
+            if (sharedHttpClient == null) {
+                // a few threads are enough, they only run callbacks, the I/O is done by the client's selector
+                ExecutorService executor = BookingExecutors.newFixedExecutor("booker-async",
+                        loadIntProperty("booker.async.threads", Runtime.getRuntime().availableProcessors()));
+                sharedHttpClient = HttpClient.newBuilder()
+                        .version(HttpClient.Version.HTTP_2)
+                        .connectTimeout(Duration.ofSeconds(10))
+                        .executor(executor)
+                        .build();
+            }
+            return sharedHttpClient;
+        } finally {
+            SHARED_CLIENT_LOCK.unlock();
+        }
+    }
+
+    public CompletableFuture<Auth> authenticateUser(Auth auth) {
+        String body = toJson(auth);
+        HttpRequest request = request("/auth")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return send(request, body).thenApply(response -> {
+            Auth session = fromJson(expectStatus(response, 200), Auth.class);
+            if (session.getToken() == null)
+                throw new IllegalStateException("Authentication failed: " + response.body());
+            return session;
+        });
+    }
+
+    public CompletableFuture<CreatedBooking> createBooking(Booking booking, String token) {
+        String body = toJson(booking);
+        HttpRequest request = request("/booking")
+                .header("Authorization", String.valueOf(token))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return send(request, body).thenApply(response -> ResponseSchema.CREATED_BOOKING.read(expectStatus(response, 200), CreatedBooking.class));
+    }
+
+    // Completes exceptionally with IllegalStateException when the booking doesn't exist, like BookingClient
+    public CompletableFuture<Booking> getBookingById(int id) {
+        HttpRequest request = request("/booking/" + id)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return send(request, null).thenApply(response -> ResponseSchema.BOOKING.read(expectStatus(response, 200), Booking.class));
+    }
+
+    // Never completes exceptionally, a missing booking or a failed call is described by the result
+    public CompletableFuture<BookingResult> fetchBooking(int id) {
+        HttpRequest request = request("/booking/" + id)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return send(request, null).handle((response, error) -> {
+            if (error != null) return BookingResult.failed(id, error);
+            if (response.statusCode() != 200) return BookingResult.refused(id, response.statusCode(), response.body());
+            try {
+                return BookingResult.found(id, ResponseSchema.BOOKING.read(response.body(), Booking.class));
+            } catch (Throwable e) {
+                // a schema violation as well, an exceptional future would leave getBookingsByIds waiting
+                return BookingResult.failed(id, e);
+            }
+        });
+    }
+
+    public CompletableFuture<HttpResponse<String>> getBookingIds(Map<String, Object> filters) {
+        HttpRequest request = request(bookingIdsPath(filters))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return send(request, null);
+    }
+
+    static String bookingIdsPath(Map<String, Object> filters) {
+        StringBuilder path = new StringBuilder("/booking");
+        char separator = '?';
+        // collect filters and their values
+        for (Map.Entry<String, Object> entry : filters.entrySet()) {
+            path.append(separator)
+                    .append(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(String.valueOf(entry.getValue()), StandardCharsets.UTF_8));
+            separator = '&';
+        }
+        return path.toString();
+    }
+
+    private CompletableFuture<HttpResponse<String>> partialUpdateBooking(Booking booking, int id, String token, String mediaType) {
+        String body = mediaType.contains("json") ? toJson(booking) : BookingXmlCodec.toXmlString(booking);
+        HttpRequest request = request("/booking/" + id)
+                .header("Cookie", "token=" + token)
+                .header("Content-Type", mediaType)
+                .header("Accept", mediaType)
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return send(request, body);
+    }
+
+    public CompletableFuture<HttpResponse<String>> partialUpdateBookingJson(Booking booking, int id, String token) {
+        return partialUpdateBooking(booking, id, token, "application/json");
+    }
+
+    public CompletableFuture<HttpResponse<String>> partialUpdateBookingXml(Booking booking, int id, String token) {
+        return partialUpdateBooking(booking, id, token, "application/xml");
+    }
+
+    public CompletableFuture<HttpResponse<String>> deleteBooking(int id, String token) {
+        HttpRequest request = request("/booking/" + id)
+                .header("Cookie", "token=" + token)
+                .DELETE()
+                .build();
+        return send(request, null);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return waiting.size();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(REQUEST_TIMEOUT);
+    }
+
+    // `body` is what the request publishes, for the cassette; null without a body
+    private CompletableFuture<HttpResponse<String>> send(HttpRequest request, String body) {
+        String operation = ClientMetrics.operationName(request.method(), request.uri().getPath());
+        long requestSize = request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L);
+        return limited(() -> {
+            // the shared ConcurrencyLimiter adapts to the host, maxConcurrency only bounds this client
+            ConcurrencyLimiter limiter = ConcurrencyLimiter.shared();
+            if (limiter == null) return sendMeasured(request, body, operation, requestSize, null);
+            return limiter.acquireAsync(operation).thenCompose(permit -> sendMeasured(request, body, operation, requestSize, permit));
+        });
+    }
+
+    private CompletableFuture<HttpResponse<String>> sendMeasured(HttpRequest request, String body, String operation,
+                                                                 long requestSize, ConcurrencyLimiter.Permit permit) {
+        long start = System.nanoTime();
+        return exchange(request, body)
+                .whenComplete((response, error) -> {
+                    if (permit != null) permit.release(error == null ? response.statusCode() : 0);
+                    ClientMetrics.record(operation, System.nanoTime() - start,
+                            error == null ? response.statusCode() : 0,
+                            Math.max(0, requestSize),
+                            error == null ? response.body().length() : 0);
+                });
+    }
+
+    // Innermost like CassetteFilter in BookingClient, so that limits and metrics apply to replayed calls as well
+    private CompletableFuture<HttpResponse<String>> exchange(HttpRequest request, String body) {
+        if (cassette == null) return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        return cassette.exchangeAsync(httpClient, request, bytes).thenApply(recorded -> new RecordedResponse(request, recorded));
+    }
+
+    // Starts the call when a slot is free, otherwise parks it until one of the running calls completes
+    private <T> CompletableFuture<T> limited(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        waiting.add(() -> {
+            CompletableFuture<T> started;
+            try {
+                started = call.get();
+            } catch (Throwable e) {
+                // failed before it was sent, the caller learns it from the result like from any other failure
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            started.whenComplete((value, error) -> {
+                release();
+                if (error != null) result.completeExceptionally(error);
+                else result.complete(value);
+            });
+        });
+        drain();
+        return result;
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= maxConcurrency) return;
+            if (!inFlight.compareAndSet(current, current + 1)) continue;
+
+            Runnable next = waiting.poll();
+            if (next == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            // doesn't throw, see limited
+            next.run();
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    private static String expectStatus(HttpResponse<String> response, int expectedStatus) {
+        if (response.statusCode() != expectedStatus)
+            throw new IllegalStateException(response.request().method() + " " + response.uri()
+                    + " responded with " + response.statusCode() + ": " + response.body());
+        return response.body();
+    }
+
+    // A recorded or replayed exchange as the response callers get without a cassette
+    private static final class RecordedResponse implements HttpResponse<String> {
+        private final HttpRequest request;
+        private final Cassette.Recorded recorded;
+
+        private RecordedResponse(HttpRequest request, Cassette.Recorded recorded) {
+            this.request = request;
+            this.recorded = recorded;
+        }
+
+        @Override
+        public int statusCode() {
+            return recorded.getStatusCode();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return request;
+        }
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            Map<String, List<String>> headers = recorded.getHeaders().entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, header -> List.of(header.getValue())));
+            return HttpHeaders.of(headers, (name, value) -> true);
+        }
+
+        @Override
+        public String body() {
+            return new String(recorded.getBody(), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return recorded.getStatusLine().startsWith("HTTP/2") ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+        }
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T> T fromJson(String json, Class<T> type) {
+        try {
+            return MAPPER.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
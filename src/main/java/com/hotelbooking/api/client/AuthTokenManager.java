@@ -0,0 +1,107 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.model.Auth;
+import io.restassured.response.Response;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadLongProperty;
+
+// Mints one auth token per credential set and shares it between threads and test classes.
+// A new token is requested only when the current one is older than the TTL or the server rejects it with 403.
+public class AuthTokenManager {
+
+    private static final Map<String, AuthTokenManager> MANAGERS = new ConcurrentHashMap<>();
+
+    private final BookingClient client;
+    private final String username;
+    private final String password;
+    private final Duration ttl;
+    private final ReentrantLock mintLock = new ReentrantLock();
+    private final AtomicInteger mintCount = new AtomicInteger();
+
+    private volatile IssuedToken current;
+
+    public AuthTokenManager(BookingClient client, String username, String password, Duration ttl) {
+        this.client = client;
+        this.username = username;
+        this.password = password;
+        this.ttl = ttl;
+    }
+
+    // Shared manager per credential set, TTL is read from auth.token.ttl.seconds (0 - never expires)
+    public static AuthTokenManager forCredentials(String username, String password) {
+        return MANAGERS.computeIfAbsent(username + '\u0000' + password, key -> new AuthTokenManager(
+                new BookingClient(), username, password, Duration.ofSeconds(loadLongProperty("auth.token.ttl.seconds", 0))));
+    }
+
+    public String getToken() {
+        IssuedToken token = current;
+        if (token != null && !isExpired(token))
+            return token.value;
+
+        mintLock.lock();
+        try {
+            // another thread could have minted a token while we were waiting
+            token = current;
+            if (token == null || isExpired(token)) {
+                token = new IssuedToken(client.authenticateUser(new Auth(username, password, null)).getToken(), System.nanoTime());
+                mintCount.incrementAndGet();
+                current = token;
+            }
+            return token.value;
+        } finally {
+            mintLock.unlock();
+        }
+    }
+
+    // Drops the token if it's still the current one, so concurrent callers re-authenticate only once
+    public void invalidate(String staleToken) {
+        mintLock.lock();
+        try {
+            if (current != null && current.value.equals(staleToken))
+                current = null;
+        } finally {
+            mintLock.unlock();
+        }
+    }
+
+    // Runs an authorized call and repeats it once with a fresh token if the server answers 403
+    public Response withToken(Function<String, Response> call) {
+        String token = getToken();
+        Response response = call.apply(token);
+        if (response.getStatusCode() != 403)
+            return response;
+
+        invalidate(token);
+        return call.apply(getToken());
+    }
+
+    public Duration getTokenAge() {
+        IssuedToken token = current;
+        return token == null ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - token.issuedAt);
+    }
+
+    public int getMintCount() {
+        return mintCount.get();
+    }
+
+    private boolean isExpired(IssuedToken token) {
+        return !ttl.isZero() && System.nanoTime() - token.issuedAt >= ttl.toNanos();
+    }
+
+    private static final class IssuedToken {
+        private final String value;
+        private final long issuedAt;
+
+        private IssuedToken(String value, long issuedAt) {
+            this.value = value;
+            this.issuedAt = issuedAt;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.model.Booking;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadLongProperty;
+
+// Bookings read by one BookingClient, least recently used ones are evicted above maxSize.
+// Within the TTL an entry is served without a request, after it the client revalidates it with If-None-Match.
+// Every entry has a version: a read takes it before the request and stores its response only when the version is
+// still the same, so a response that was in flight while its booking was invalidated is not stored. An invalidated
+// id keeps an empty entry with a new version, evicted like the others.
+public class BookingCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, CachedBooking> entries;
+    private final AtomicLong versions = new AtomicLong();
+    // version of the ids without an entry, new when an invalidated one is evicted or the cache is cleared
+    private long absentVersion;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BookingCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedBooking> eldest) {
+                if (size() <= BookingCache.this.maxSize) return false;
+                if (eldest.getValue().booking == null) absentVersion = versions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    // Cache configured by booker.cache.size and booker.cache.ttl.seconds, null when the size is 0
+    public static BookingCache fromProperties() {
+        int size = loadIntProperty("booker.cache.size", 0);
+        return size <= 0 ? null : new BookingCache(size, Duration.ofSeconds(loadLongProperty("booker.cache.ttl.seconds", 5)));
+    }
+
+    // The cached booking, null when there is none
+    CachedBooking get(int id) {
+        lock.lock();
+        try {
+            CachedBooking entry = entries.get(id);
+            return entry == null || entry.booking == null ? null : entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // To be taken before the request whose response is put
+    long version(int id) {
+        lock.lock();
+        try {
+            CachedBooking entry = entries.get(id);
+            return entry == null ? absentVersion : entry.version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void put(int id, Booking booking, String etag, long version) {
+        lock.lock();
+        try {
+            CachedBooking entry = entries.get(id);
+            if ((entry == null ? absentVersion : entry.version) == version)
+                entries.put(id, new CachedBooking(copy(booking), etag, System.nanoTime(), version));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(int id) {
+        lock.lock();
+        try {
+            entries.put(id, new CachedBooking(null, null, 0, versions.incrementAndGet()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            absentVersion = versions.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Cached bookings, invalidated ids not counted
+    public int size() {
+        lock.lock();
+        try {
+            return (int) entries.values().stream().filter(entry -> entry.booking != null).count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Served from memory without a request
+    public long getHits() {
+        return hits.sum();
+    }
+
+    // Answered by the server with 304, only headers went over the wire
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    // Fetched in full
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordRevalidation() {
+        revalidations.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    boolean isFresh(CachedBooking entry) {
+        return System.nanoTime() - entry.validatedAt < ttlNanos;
+    }
+
+    // Cached bookings are mutable models, callers get their own copy
+    static Booking copy(Booking booking) {
+        return booking.toBuilder()
+                .bookingdates(booking.getBookingdates() == null ? null : booking.getBookingdates().toBuilder().build())
+                .build();
+    }
+
+    // Not named Entry: inside the LinkedHashMap subclass that name is Map.Entry
+    static final class CachedBooking {
+        // null for an invalidated id
+        final Booking booking;
+        final String etag;
+        final long validatedAt;
+        final long version;
+
+        CachedBooking(Booking booking, String etag, long validatedAt, long version) {
+            this.booking = booking;
+            this.etag = etag;
+            this.validatedAt = validatedAt;
+            this.version = version;
+        }
+    }
+}
@@ -2,116 +2,399 @@ package com.hotelbooking.api.client;
 
 import com.hotelbooking.api.model.Auth;
 import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.metrics.BookingOperationEvent;
+import com.hotelbooking.api.metrics.ClientMetrics;
+import com.hotelbooking.api.metrics.FlightRecorderFilter;
+import com.hotelbooking.api.metrics.MetricsFilter;
 import com.hotelbooking.api.model.CreatedBooking;
+import com.hotelbooking.api.server.BookerStubServer;
 import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.config.RestAssuredConfig;
 import io.restassured.filter.log.LogDetail;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadBooleanProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
 import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
 import static org.hamcrest.Matchers.notNullValue;
 
 
 public class BookingClient {
 
-    private static String BASE_URL;
+    // resolved once per JVM and then only read, so clients can be created from parallel tests
+    private static volatile String BASE_URL;
+    // a lock rather than synchronized: the first call may start the stub server, which shouldn't pin a virtual thread
+    private static final ReentrantLock BASE_URL_LOCK = new ReentrantLock();
+    private static final String XML_CONTENT_TYPE = "application/xml; charset=UTF-8";
 
+    private final String baseUrl;
     private final RequestSpecification requestSpec;
+    // null when caching is off
+    private final BookingCache cache;
+    // null when booker.cassette.mode is off
+    private final CassetteFilter cassette;
 
 
     public BookingClient() {
-        loadBaseUrl();
+        this(BookingCache.fromProperties());
+    }
 
-        requestSpec = new RequestSpecBuilder()
-                .setBaseUri(BASE_URL)
-                .log(LogDetail.URI)
-                .log(LogDetail.METHOD)
-                .log(LogDetail.BODY)
-                .build();
+    public BookingClient(BookingCache cache) {
+        this(baseUrl(), cache);
+    }
+
+    // A client of another host than the configured one, e.g. a BookerStubServer started by a test
+    public BookingClient(String baseUrl, BookingCache cache) {
+        this(baseUrl, cache, CassetteFilter.configured());
+    }
+
+    BookingClient(String baseUrl, BookingCache cache, CassetteFilter cassette) {
+        this.baseUrl = baseUrl;
+        this.cache = cache;
+        this.cassette = cassette;
+
+        RequestSpecBuilder spec = new RequestSpecBuilder()
+                .setBaseUri(baseUrl)
+                // pooled connections; the HTTP client reports when the connection was ready and the headers arrived,
+                // see BookingOperationEvent
+                .setConfig(RestAssuredConfig.config().httpClient(BookingHttpClients.httpClientConfig()));
+        // first, so that the wait for a slot isn't measured as latency
+        ConcurrencyLimitFilter limit = ConcurrencyLimitFilter.configured();
+        if (limit != null) spec.addFilter(limit);
+        spec.addFilter(new MetricsFilter());
+        if (RequestLog.isLogAll()) {
+            spec.log(LogDetail.URI)
+                    .log(LogDetail.METHOD)
+                    .log(LogDetail.BODY);
+        } else {
+            // exchanges are kept in memory and printed only for failed tests, see RequestLog
+            spec.addFilter(new RequestLogFilter());
+        }
+        // inside the logging filters, so that their time isn't counted as the exchange
+        spec.addFilter(new FlightRecorderFilter());
+        // last, so that metrics and logs see the replayed responses as well
+        if (cassette != null) spec.addFilter(cassette);
+        requestSpec = spec.build();
     }
 
     private static void loadBaseUrl() {
-        // read base URL from resources
-        BASE_URL = loadProperty("booker.host");
+        BASE_URL_LOCK.lock();
+        try {
+            if (BASE_URL != null) return;
+            // read base URL from resources, or point to the in-process stub server when it's enabled
+            BASE_URL = loadBooleanProperty("booker.embedded")
+                    ? BookerStubServer.shared().getBaseUrl()
+                    : loadProperty("booker.host");
+        } finally {
+            BASE_URL_LOCK.unlock();
+        }
+    }
+
+    // Runs a blocking operation of this client on the booker.executor threads (virtual threads with Java 21),
+    // e.g. client.async(() -> client.getBookingById(id)). The calls are counted in the caller's metrics scope.
+    public <T> CompletableFuture<T> async(Supplier<T> operation) {
+        String scope = ClientMetrics.currentScope();
+        return CompletableFuture.supplyAsync(() -> {
+            String previous = scope == null ? null : ClientMetrics.enterScope(scope);
+            try {
+                return operation.get();
+            } finally {
+                if (scope != null) ClientMetrics.exitScope(previous);
+            }
+        }, BookingExecutors.shared());
     }
 
     public Auth authenticateUser(Auth auth) {
-        Response response = RestAssured.given()
-                .spec(requestSpec)
-                .contentType(ContentType.JSON)
-                .body(auth)
-                .post("/auth")
-                .then()
-                .assertThat()
-                .body("token", notNullValue())
-                .extract()
-                .response();
-        return response.as(Auth.class);
+        return recorded("POST /auth", 0, () -> {
+            Response response = RestAssured.given()
+                    .spec(requestSpec)
+                    .contentType(ContentType.JSON)
+                    .body(auth)
+                    .post("/auth")
+                    .then()
+                    .assertThat()
+                    .body("token", notNullValue())
+                    .extract()
+                    .response();
+            return deserialized(() -> ResponseSchema.AUTH.read(response, Auth.class));
+        });
     }
 
     public CreatedBooking createBooking(Booking booking, String token) {
-        Response response = RestAssured.given()
-                .spec(requestSpec)
-                .header("Authorization", token)
-                .contentType(ContentType.JSON)
-                .body(booking)
-                .post("/booking")
-                .then()
-                .log().body().log().status()
-                .extract()
-                .response();
-        return response.as(CreatedBooking.class);
+        return recorded("POST /booking", 0, () -> {
+            Response response = RestAssured.given()
+                    .spec(requestSpec)
+                    .header("Authorization", token)
+                    .contentType(ContentType.JSON)
+                    .body(booking)
+                    .post("/booking");
+            logResponse(response, LogDetail.BODY, LogDetail.STATUS);
+            return deserialized(() -> ResponseSchema.CREATED_BOOKING.read(response, CreatedBooking.class));
+        });
     }
 
     public Booking getBookingById(int id) {
-        Response response = RestAssured.given()
-                .spec(requestSpec)
-                .accept("application/json")
-                .get("/booking/" + id)
-                .then()
-                .log().body().log().status()
-                .extract()
-                .response();
-        return response.as(Booking.class);
+        return recorded("GET /booking/{id}", id, () -> {
+            if (cache != null) return getCachedBookingById(id);
+
+            Response response = IdempotentCalls.shared().call("GET /booking/{id}", () -> RestAssured.given()
+                    .spec(requestSpec)
+                    .accept("application/json")
+                    .get("/booking/" + id));
+            logResponse(response, LogDetail.BODY, LogDetail.STATUS);
+            return deserialized(() -> ResponseSchema.BOOKING.read(response, Booking.class));
+        });
+    }
+
+    // Like getBookingById without the cache, but a missing booking or a failed call is described by the result
+    public BookingResult fetchBookingById(int id) {
+        return recorded("GET /booking/{id}", id, () -> {
+            Response response;
+            try {
+                response = IdempotentCalls.shared().call("GET /booking/{id}", () -> RestAssured.given()
+                        .spec(requestSpec)
+                        .accept("application/json")
+                        .get("/booking/" + id));
+            } catch (Exception e) {
+                // RestAssured throws connection errors (IOException) undeclared
+                return BookingResult.failed(id, e);
+            }
+            logResponse(response, LogDetail.BODY, LogDetail.STATUS);
+            if (response.getStatusCode() != 200) return BookingResult.refused(id, response.getStatusCode(), response.asString());
+            try {
+                return BookingResult.found(id, deserialized(() -> ResponseSchema.BOOKING.read(response, Booking.class)));
+            } catch (RuntimeException e) {
+                // a body that violates the schema is a failed call as well
+                return BookingResult.failed(id, e);
+            }
+        });
+    }
+
+    // The booking as XML, read by BookingXmlCodec whatever content type the server declares
+    public Booking getBookingByIdXml(int id) {
+        return recorded("GET /booking/{id}", id, () -> {
+            Response response = IdempotentCalls.shared().call("GET /booking/{id}", () -> RestAssured.given()
+                    .spec(requestSpec)
+                    .accept("application/xml")
+                    .get("/booking/" + id));
+            logResponse(response, LogDetail.BODY, LogDetail.STATUS);
+            if (response.getStatusCode() != 200)
+                throw new IllegalStateException("GET /booking/" + id + " responded with " + response.getStatusLine());
+            return deserialized(() -> BookingXmlCodec.readBooking(response.asByteArray()));
+        });
+    }
+
+    private Booking getCachedBookingById(int id) {
+        long version = cache.version(id);
+        BookingCache.CachedBooking entry = cache.get(id);
+        if (entry != null && cache.isFresh(entry)) {
+            cache.recordHit();
+            return BookingCache.copy(entry.booking);
+        }
+
+        // retried and hedged like the uncached reads
+        Response response = IdempotentCalls.shared().call("GET /booking/{id}", () -> {
+            RequestSpecification request = RestAssured.given()
+                    .spec(requestSpec)
+                    .accept("application/json");
+            if (entry != null && entry.etag != null) request.header("If-None-Match", entry.etag);
+            return request.get("/booking/" + id);
+        });
+        logResponse(response, LogDetail.BODY, LogDetail.STATUS);
+
+        if (response.getStatusCode() == 304 && entry != null) {
+            cache.recordRevalidation();
+            cache.put(id, entry.booking, entry.etag, version);
+            return BookingCache.copy(entry.booking);
+        }
+        cache.recordMiss();
+        if (response.getStatusCode() != 200) cache.invalidate(id);
+        // fails for other statuses than 200 like the uncached read
+        Booking booking = deserialized(() -> ResponseSchema.BOOKING.read(response, Booking.class));
+        cache.put(id, booking, response.getHeader("ETag"), version);
+        return booking;
     }
 
     public Response getBookingIds(Map<String, Object> filters) {
-        RequestSpecification request = RestAssured.given()
-                .spec(requestSpec)
-                .accept("application/json");
-        // collect filters and their values
-        for (Map.Entry<String, Object> entry : filters.entrySet()) {
-            request.queryParam(entry.getKey(), entry.getValue());
+        return recorded("GET /booking", 0, () -> {
+            Response response = IdempotentCalls.shared().call("GET /booking", () -> {
+                RequestSpecification request = RestAssured.given()
+                        .spec(requestSpec)
+                        .accept("application/json");
+                // collect filters and their values
+                for (Map.Entry<String, Object> entry : filters.entrySet()) {
+                    request.queryParam(entry.getKey(), entry.getValue());
+                }
+                return request.get("/booking");
+            });
+            // logging the body is too much for the whole list, probably need it only for debug
+            logResponse(response, LogDetail.STATUS);
+            deserialized(() -> {
+                ResponseSchema.validateBookingIds(response);
+                return null;
+            });
+            // response time is recorded for every call by MetricsFilter, see ClientMetrics
+            return response;
+        });
+    }
+
+    // Same request as getBookingIds, but the ids are parsed while the body is being received.
+    // Neither the whole body nor an object per booking is kept, close the stream to release the connection.
+    // With a cassette the body is recorded or replayed as a whole and the ids are parsed from memory.
+    public IntStream streamBookingIds(Map<String, Object> filters) {
+        // until the headers have arrived, the caller reads the body afterwards
+        return recorded("GET /booking", 0, () -> sendStreamed(filters));
+    }
+
+    private IntStream sendStreamed(Map<String, Object> filters) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + AsyncBookingClient.bookingIdsPath(filters)))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        InputStream body;
+        String operation = ClientMetrics.operationName("GET", request.uri().getPath());
+        // the slot is held until the headers have arrived, the body is read by the caller at its own pace
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.shared();
+        ConcurrencyLimiter.Permit permit = limiter == null ? null : limiter.acquire(operation);
+        // after the slot, like MetricsFilter after ConcurrencyLimitFilter
+        long start = System.nanoTime();
+        int status = 0;
+        try {
+            if (cassette == null) {
+                HttpResponse<InputStream> response = AsyncBookingClient.sharedHttpClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+                status = response.statusCode();
+                body = response.body();
+            } else {
+                Cassette.Recorded recorded = cassette.exchange(AsyncBookingClient.sharedHttpClient(), request, new byte[0]);
+                status = recorded.getStatusCode();
+                body = new ByteArrayInputStream(recorded.getBody());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while requesting " + request.uri(), e);
+        } finally {
+            if (permit != null) permit.release(status);
+            if (status == 0) ClientMetrics.record(operation, System.nanoTime() - start, 0, 0, 0);
+        }
+        MeasuredBody measured = new MeasuredBody(body, operation, start, status);
+        if (status != 200) {
+            try {
+                measured.close();
+            } catch (IOException e) {
+                // the request has failed anyway
+            }
+            throw new IllegalStateException("GET " + request.uri() + " responded with " + status);
+        }
+        return BookingIdReader.stream(measured, ResponseSchema.isEnabled());
+    }
+
+    // Streamed ids as a sorted primitive set for cheap comparisons, duplicates sent by the server are kept aside
+    public BookingIdSet snapshotBookingIds(Map<String, Object> filters) {
+        return BookingIdSet.of(streamBookingIds(filters));
+    }
+
+    public Stream<BookingResult> getBookingsByIds(Collection<Integer> ids) {
+        return getBookingsByIds(ids, loadIntProperty("booker.bulk.concurrency", 16));
+    }
+
+    // Fetches the bookings with at most `concurrency` requests in flight.
+    // Results come in completion order, not in the order of ids, and a failed id is reported by its result only.
+    public Stream<BookingResult> getBookingsByIds(Collection<Integer> ids, int concurrency) {
+        // one event until the last result has been taken or the stream is closed, booking id 0 for many ids
+        BookingOperationEvent event = BookingOperationEvent.startDetached("GET /booking/{id}", 0);
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable finish = () -> {
+            if (finished.compareAndSet(false, true)) event.finish();
+        };
+        AsyncBookingClient asyncClient = new AsyncBookingClient(baseUrl, concurrency, cassette);
+        BlockingQueue<BookingResult> completed = new LinkedBlockingQueue<>();
+        for (int id : ids) {
+            // fetchBooking describes failures by the result, whenComplete makes sure every id gets one anyway
+            asyncClient.fetchBooking(id).whenComplete((result, error) ->
+                    completed.add(error == null ? result : BookingResult.failed(id, error)));
         }
-        Response response = request.get("/booking")
-                .then()
-                //.log().body() // too many logs so probably need it only for debug
-                .log().status()
-                .extract()
-                .response();
-        // here we can also measure a time for the response, such as response.time() for testing purposes.
-        return response;
+
+        int expected = ids.size();
+        Iterator<BookingResult> results = new Iterator<>() {
+            private int received;
+
+            @Override
+            public boolean hasNext() {
+                return received < expected;
+            }
+
+            @Override
+            public BookingResult next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                try {
+                    // every request has a timeout, so a result always arrives
+                    BookingResult result = completed.take();
+                    if (++received == expected) finish.run();
+                    return result;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for bookings", e);
+                }
+            }
+        };
+        if (expected == 0) finish.run();
+        return StreamSupport.stream(Spliterators.spliterator(results, expected, Spliterator.NONNULL), false).onClose(finish);
     }
 
     private Response partialUpdateBooking(Booking booking, int id, String token, String mediaType) {
-        ContentType contentType = mediaType.contains("json") ? ContentType.JSON : ContentType.XML;
-
-        return RestAssured.given()
-                .spec(requestSpec)
-                .header("Cookie", "token=" + token)
-                .contentType(contentType)// set content type for request body
-                .accept(mediaType)// set expected content type for response body
-                .body(booking)
-                .when()
-                .patch("/booking/" + id)
-                .then()
-                .log().all()
-                .extract()
-                .response();
+        return recorded("PATCH /booking/{id}", id, () -> {
+            boolean json = mediaType.contains("json");
+
+            Response response = RestAssured.given()
+                    .spec(requestSpec)
+                    .header("Cookie", "token=" + token)
+                    .contentType(json ? ContentType.JSON.toString() : XML_CONTENT_TYPE)// set content type for request body
+                    .accept(mediaType)// set expected content type for response body
+                    // XML is written by the pooled codec, RestAssured's JAXB mapper sets up a marshaller per request
+                    .body(json ? booking : BookingXmlCodec.toXml(booking))
+                    .when()
+                    .patch("/booking/" + id);
+            logResponse(response, LogDetail.ALL);
+            if (json) deserialized(() -> {
+                ResponseSchema.BOOKING.validate(response);
+                return null;
+            });
+            // after the response, so that a read which was in flight meanwhile isn't cached either
+            if (cache != null) cache.invalidate(id);
+            return response;
+        });
     }
 
     public Response partialUpdateBookingJson(Booking booking, int id, String token){
@@ -123,23 +406,127 @@ public class BookingClient {
     }
 
     public Response deleteBooking(int id, String token) {
-        return RestAssured.given()
-                .spec(requestSpec)
-                .header("Cookie", "token=" + token)
-                .delete("/booking/" + id)
-                .then()
-                .log().body().log().status()
-                .extract()
-                .response();
+        return recorded("DELETE /booking/{id}", id, () -> {
+            Response response = RestAssured.given()
+                    .spec(requestSpec)
+                    .header("Cookie", "token=" + token)
+                    .delete("/booking/" + id);
+            logResponse(response, LogDetail.BODY, LogDetail.STATUS);
+            if (cache != null) cache.invalidate(id);
+            return response;
+        });
+    }
+
+    // A streamed body, counted in ClientMetrics when it's closed: the whole exchange is measured, as by MetricsFilter.
+    // BookingIdReader closes it at the end of the list, or the caller by closing the IntStream.
+    private static final class MeasuredBody extends FilterInputStream {
+        private final String operation;
+        private final long start;
+        private final int status;
+        private long size;
+        private boolean recorded;
+
+        MeasuredBody(InputStream body, String operation, long start, int status) {
+            super(body);
+            this.operation = operation;
+            this.start = start;
+            this.status = status;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int next = super.read();
+            if (next >= 0) size++;
+            return next;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) size += read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!recorded) {
+                    recorded = true;
+                    ClientMetrics.record(operation, System.nanoTime() - start, status, 0, size);
+                }
+            }
+        }
+    }
+
+    // One BookingOperationEvent per call, FlightRecorderFilter adds the phases of its exchanges
+    private static <T> T recorded(String operation, int bookingId, Supplier<T> call) {
+        BookingOperationEvent event = BookingOperationEvent.start(operation, bookingId);
+        try {
+            return call.get();
+        } finally {
+            event.finish();
+        }
+    }
+
+    // Mapping and validating a body, timed for the BookingOperationEvent of the call
+    private static <T> T deserialized(Supplier<T> read) {
+        long start = System.nanoTime();
+        try {
+            return read.get();
+        } finally {
+            BookingOperationEvent.addDeserialization(System.nanoTime() - start);
+        }
+    }
+
+    // Response logging of booker.log.mode = all, in the failures mode RequestLogFilter has kept the exchange already
+    private static void logResponse(Response response, LogDetail... details) {
+        if (!RequestLog.isLogAll()) return;
+        long start = System.nanoTime();
+        for (LogDetail detail : details) {
+            switch (detail) {
+                case BODY: response.then().log().body(); break;
+                case STATUS: response.then().log().status(); break;
+                default: response.then().log().all();
+            }
+        }
+        BookingOperationEvent.addLogging(System.nanoTime() - start);
+    }
+
+    public BookingCache getCache() {
+        return cache;
     }
 
+    static String baseUrl() {
+        if (BASE_URL == null) loadBaseUrl();
+        return BASE_URL;
+    }
+
+    // Waits until the host is ready, up to booker.ping.timeout.seconds: a cold host may refuse or fail the first calls
     public static void ping() {
         if (BASE_URL == null) loadBaseUrl();
 
-        RestAssured.given()
-                .get(BASE_URL + "/ping")
-                .then()
-                .assertThat().statusCode(201);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(loadIntProperty("booker.ping.timeout.seconds", 30));
+        long backoffMillis = 100;
+        while (true) {
+            RequestSpecification request = RestAssured.given();
+            CassetteFilter cassette = CassetteFilter.configured();
+            if (cassette != null) request.filter(cassette);
+            try {
+                Response response = request.get(BASE_URL + "/ping");
+                if (response.getStatusCode() == 201 || System.nanoTime() > deadline) {
+                    response.then().assertThat().statusCode(201);
+                    return;
+                }
+            } catch (Exception e) {
+                // not reachable yet; RestAssured throws IOExceptions undeclared
+                if (System.nanoTime() > deadline) throw e;
+            }
+            long jitteredMillis = ThreadLocalRandom.current().nextLong(backoffMillis / 2, backoffMillis + 1);
+            LockSupport.parkNanos(Math.min(TimeUnit.MILLISECONDS.toNanos(jitteredMillis), Math.max(0, deadline - System.nanoTime())));
+            backoffMillis = Math.min(backoffMillis * 2, 5000);
+        }
     }
 
 }
@@ -0,0 +1,83 @@
+package com.hotelbooking.api.client;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Threads for the client's background and fan-out work. booker.executor = platform uses pools of daemon threads,
+// virtual starts a virtual thread per task (Java 21), so many blocking calls can wait at once; the requests in flight
+// stay bounded by the ConcurrencyLimiter and the connection pool of BookingHttpClients.
+// Virtual threads are created through reflection, the project is still compiled for Java 11.
+public final class BookingExecutors {
+
+    private static final boolean VIRTUAL = "virtual".equalsIgnoreCase(loadProperty("booker.executor", "platform"));
+
+    private static final ReentrantLock LOCK = new ReentrantLock();
+    private static ExecutorService shared;
+
+    private BookingExecutors() {
+    }
+
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    // For BookingClient.async and other unbounded fan-out: virtual threads, or a cached pool of platform threads
+    public static ExecutorService shared() {
+        LOCK.lock();
+        try {
+            if (shared == null) shared = newExecutor("booker-worker");
+            return shared;
+        } finally {
+            LOCK.unlock();
+        }
+    }
+
+    public static ExecutorService newExecutor(String name) {
+        return VIRTUAL ? newVirtualThreadPerTaskExecutor(name) : Executors.newCachedThreadPool(daemonThreads(name));
+    }
+
+    // A fixed number of platform threads, or a virtual thread per task: the callers bound the number of tasks
+    public static ExecutorService newFixedExecutor(String name, int platformThreads) {
+        return VIRTUAL ? newVirtualThreadPerTaskExecutor(name) : Executors.newFixedThreadPool(platformThreads, daemonThreads(name));
+    }
+
+    public static ThreadFactory threadFactory(String name) {
+        return VIRTUAL ? virtualThreads(name) : daemonThreads(name);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, virtualThreads(name));
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("booker.executor = virtual needs Java 21 or later", e);
+        }
+    }
+
+    // Thread.ofVirtual().name(name + "-", 1).factory()
+    private static ThreadFactory virtualThreads(String name) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("booker.executor = virtual needs Java 21 or later", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.metrics.FlightRecorderFilter;
+import io.restassured.config.HttpClientConfig;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+
+// The Apache HTTP clients RestAssured sends the requests of BookingClient with.
+// RestAssured asks the factory for a new client per request. The clients share one pool of connections
+// (booker.http.connections), so a request reuses an idle connection to the host instead of opening its own and
+// leaving it to the garbage collector. DefaultHttpClient is deprecated, but RestAssured 5 casts the factory's client
+// to AbstractHttpClient, a client of HttpClientBuilder would fail on the first request.
+public final class BookingHttpClients {
+
+    @SuppressWarnings("deprecation")
+    private static final PoolingClientConnectionManager CONNECTIONS = connections();
+
+    private BookingHttpClients() {
+    }
+
+    // With the FlightRecorderFilter interceptors, which report when the connection was ready and the headers arrived
+    @SuppressWarnings("deprecation")
+    public static HttpClientConfig httpClientConfig() {
+        return HttpClientConfig.httpClientConfig().httpClientFactory(() -> {
+            DefaultHttpClient client = new DefaultHttpClient(CONNECTIONS);
+            // a request waits at most this long for a free connection of the pool
+            client.getParams().setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, loadIntProperty("booker.http.connection.wait.ms", 30_000));
+            return FlightRecorderFilter.instrument(client);
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private static PoolingClientConnectionManager connections() {
+        PoolingClientConnectionManager connections = new PoolingClientConnectionManager();
+        int max = loadIntProperty("booker.http.connections", 512);
+        connections.setMaxTotal(max);
+        connections.setDefaultMaxPerRoute(max);
+        return connections;
+    }
+}
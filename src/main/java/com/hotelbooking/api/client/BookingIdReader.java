@@ -0,0 +1,153 @@
+package com.hotelbooking.api.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+// Reads the /booking response ([{"bookingid":1},...]) token by token.
+// Only the current token is held in memory, so the size of the list doesn't matter.
+// With validation the elements are read as trees in chunks of CHUNK and checked against ResponseSchema.BOOKING_IDS:
+// one validation per chunk costs much less per element than one per element, and memory stays bounded.
+public class BookingIdReader implements PrimitiveIterator.OfInt, Closeable {
+
+    // a factory with an ObjectMapper, so that the parser can read an element as a tree
+    private static final JsonFactory JSON = new MappingJsonFactory();
+    private static final int CHUNK = 1024;
+
+    private final JsonParser parser;
+    private final boolean validate;
+    private boolean hasNext;
+    private int next;
+
+    // validated ids not returned yet
+    private int[] chunk;
+    private int chunkSize;
+    private int chunkPosition;
+
+    public BookingIdReader(InputStream body) {
+        this(body, false);
+    }
+
+    public BookingIdReader(InputStream body, boolean validate) {
+        this.validate = validate;
+        try {
+            parser = JSON.createParser(body);
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new IllegalStateException("Expected a JSON array of bookings but got " + parser.currentToken());
+            advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The stream closes the body when it's closed itself, e.g. in try-with-resources
+    public static IntStream stream(InputStream body) {
+        return stream(body, false);
+    }
+
+    public static IntStream stream(InputStream body, boolean validate) {
+        BookingIdReader reader = new BookingIdReader(body, validate);
+        Spliterator.OfInt spliterator = Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.intStream(spliterator, false).onClose(reader::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public int nextInt() {
+        if (!hasNext) throw new NoSuchElementException();
+        int current = next;
+        try {
+            advance();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return current;
+    }
+
+    @Override
+    public void close() {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Moves to the next object of the array and picks its bookingid, other fields are skipped
+    private void advance() throws IOException {
+        if (validate) {
+            advanceValidated();
+            return;
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY || token == null) {
+            hasNext = false;
+            close();
+            return;
+        }
+        if (token != JsonToken.START_OBJECT)
+            throw new IllegalStateException("Expected a booking object but got " + token);
+
+        boolean found = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("bookingid".equals(field)) {
+                next = parser.getIntValue();
+                found = true;
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (!found)
+            throw new IllegalStateException("Booking object without bookingid");
+        hasNext = true;
+    }
+
+    private void advanceValidated() throws IOException {
+        if (chunkPosition == chunkSize) readChunk();
+        if (chunkPosition == chunkSize) {
+            hasNext = false;
+            close();
+            return;
+        }
+        next = chunk[chunkPosition++];
+        hasNext = true;
+    }
+
+    private void readChunk() throws IOException {
+        ArrayNode elements = JsonNodeFactory.instance.arrayNode();
+        JsonToken token;
+        while (elements.size() < CHUNK && (token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT)
+                throw new IllegalStateException("Expected a booking object but got " + token);
+            elements.add((JsonNode) parser.readValueAsTree());
+        }
+        ResponseSchema.BOOKING_IDS.validate(elements);
+        if (chunk == null) chunk = new int[CHUNK];
+        chunkSize = elements.size();
+        chunkPosition = 0;
+        for (int i = 0; i < chunkSize; i++) {
+            chunk[i] = elements.get(i).get("bookingid").intValue();
+        }
+    }
+}
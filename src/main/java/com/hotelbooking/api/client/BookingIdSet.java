@@ -0,0 +1,180 @@
+package com.hotelbooking.api.client;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Immutable snapshot of booking ids kept as a sorted int array.
+// Set operations merge two sorted arrays in one pass, so they are O(n + m) without boxing.
+public final class BookingIdSet {
+
+    private static final BookingIdSet EMPTY = new BookingIdSet(new int[0], new int[0]);
+
+    private final int[] ids;
+    // ids that were seen more than once when the snapshot was taken
+    private final int[] duplicates;
+
+    private BookingIdSet(int[] ids, int[] duplicates) {
+        this.ids = ids;
+        this.duplicates = duplicates;
+    }
+
+    public static BookingIdSet empty() {
+        return EMPTY;
+    }
+
+    public static BookingIdSet of(int... ids) {
+        return fromUnsorted(ids.clone());
+    }
+
+    // Consumes (and closes) the stream, e.g. BookingClient.streamBookingIds
+    public static BookingIdSet of(IntStream ids) {
+        try (ids) {
+            return fromUnsorted(ids.toArray());
+        }
+    }
+
+    private static BookingIdSet fromUnsorted(int[] values) {
+        if (values.length > 100_000) Arrays.parallelSort(values);
+        else Arrays.sort(values);
+
+        int unique = 0;
+        int duplicateCount = 0;
+        int[] duplicates = new int[0];
+        for (int i = 0; i < values.length; i++) {
+            if (unique > 0 && values[i] == values[unique - 1]) {
+                // record each duplicated id once
+                if (duplicateCount == 0 || duplicates[duplicateCount - 1] != values[i]) {
+                    if (duplicateCount == duplicates.length) duplicates = Arrays.copyOf(duplicates, Math.max(8, duplicateCount * 2));
+                    duplicates[duplicateCount++] = values[i];
+                }
+            } else {
+                values[unique++] = values[i];
+            }
+        }
+        return new BookingIdSet(
+                unique == values.length ? values : Arrays.copyOf(values, unique),
+                Arrays.copyOf(duplicates, duplicateCount));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    public boolean contains(int id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    public boolean hasDuplicates() {
+        return duplicates.length > 0;
+    }
+
+    public int[] getDuplicates() {
+        return duplicates.clone();
+    }
+
+    public int[] toArray() {
+        return ids.clone();
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(ids);
+    }
+
+    public BookingIdSet union(BookingIdSet other) {
+        int[] result = new int[ids.length + other.ids.length];
+        int i = 0, j = 0, size = 0;
+        while (i < ids.length && j < other.ids.length) {
+            if (ids[i] < other.ids[j]) result[size++] = ids[i++];
+            else if (ids[i] > other.ids[j]) result[size++] = other.ids[j++];
+            else {
+                result[size++] = ids[i++];
+                j++;
+            }
+        }
+        while (i < ids.length) result[size++] = ids[i++];
+        while (j < other.ids.length) result[size++] = other.ids[j++];
+        return new BookingIdSet(Arrays.copyOf(result, size), new int[0]);
+    }
+
+    public BookingIdSet intersection(BookingIdSet other) {
+        int[] result = new int[Math.min(ids.length, other.ids.length)];
+        int i = 0, j = 0, size = 0;
+        while (i < ids.length && j < other.ids.length) {
+            if (ids[i] < other.ids[j]) i++;
+            else if (ids[i] > other.ids[j]) j++;
+            else {
+                result[size++] = ids[i++];
+                j++;
+            }
+        }
+        return new BookingIdSet(Arrays.copyOf(result, size), new int[0]);
+    }
+
+    // Ids of this set that are not in the other one
+    public BookingIdSet minus(BookingIdSet other) {
+        int[] result = new int[ids.length];
+        int i = 0, j = 0, size = 0;
+        while (i < ids.length) {
+            if (j == other.ids.length || ids[i] < other.ids[j]) result[size++] = ids[i++];
+            else if (ids[i] > other.ids[j]) j++;
+            else {
+                i++;
+                j++;
+            }
+        }
+        return new BookingIdSet(Arrays.copyOf(result, size), new int[0]);
+    }
+
+    // What changed between this (older) snapshot and a newer one
+    public Diff diff(BookingIdSet newer) {
+        return new Diff(newer.minus(this), this.minus(newer));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof BookingIdSet && Arrays.equals(ids, ((BookingIdSet) other).ids);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ids);
+    }
+
+    @Override
+    public String toString() {
+        return ids.length <= 20
+                ? Arrays.toString(ids)
+                : "BookingIdSet(size=" + ids.length + ", first=" + ids[0] + ", last=" + ids[ids.length - 1] + ")";
+    }
+
+    public static final class Diff {
+        private final BookingIdSet added;
+        private final BookingIdSet removed;
+
+        Diff(BookingIdSet added, BookingIdSet removed) {
+            this.added = added;
+            this.removed = removed;
+        }
+
+        public BookingIdSet getAdded() {
+            return added;
+        }
+
+        public BookingIdSet getRemoved() {
+            return removed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "added " + added + ", removed " + removed;
+        }
+    }
+}
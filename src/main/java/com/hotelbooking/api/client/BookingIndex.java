@@ -0,0 +1,292 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.model.Booking;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+// Snapshot of all bookings in columns, to compute the expected result of the /booking filters locally and compare
+// it with the server's answer instead of fetching every returned booking.
+// A row per booking, sorted by id: names are codes into a dictionary of distinct names, dates are epoch days and
+// price and deposit are primitive columns, so a booking takes a few ints. The names have a row list per name and the
+// dates a row order by value, the filters then read ranges of those. additionalneeds is not kept.
+public final class BookingIndex {
+
+    // a date the server couldn't parse, it matches no date filter
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_PRICE = Integer.MIN_VALUE;
+    private static final int NO_NAME = -1;
+
+    private final int[] ids;
+    private final String[] names;
+    private final Map<String, Integer> nameCodes;
+    private final int[] firstnames;
+    private final int[] lastnames;
+    private final int[] checkins;
+    private final int[] checkouts;
+    private final int[] totalprices;
+    private final BitSet depositpaid;
+
+    // rows of every name code, in row order
+    private final int[][] rowsByFirstname;
+    private final int[][] rowsByLastname;
+    // rows ordered by date, with the dates in the same order for binary searches
+    private final int[] rowsByCheckin;
+    private final int[] sortedCheckins;
+    private final int[] rowsByCheckout;
+    private final int[] sortedCheckouts;
+
+    private BookingIndex(Map<Integer, Booking> bookings) {
+        ids = bookings.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int rows = ids.length;
+        firstnames = new int[rows];
+        lastnames = new int[rows];
+        checkins = new int[rows];
+        checkouts = new int[rows];
+        totalprices = new int[rows];
+        depositpaid = new BitSet(rows);
+
+        nameCodes = new HashMap<>();
+        for (int row = 0; row < rows; row++) {
+            Booking booking = bookings.get(ids[row]);
+            firstnames[row] = code(booking.getFirstname());
+            lastnames[row] = code(booking.getLastname());
+            Booking.BookingDates dates = booking.getBookingdates();
+            checkins[row] = dates == null ? NO_DATE : epochDay(dates.getCheckin());
+            checkouts[row] = dates == null ? NO_DATE : epochDay(dates.getCheckout());
+            totalprices[row] = booking.getTotalprice() == null ? NO_PRICE : booking.getTotalprice();
+            if (Boolean.TRUE.equals(booking.getDepositpaid())) depositpaid.set(row);
+        }
+        names = new String[nameCodes.size()];
+        nameCodes.forEach((name, code) -> names[code] = name);
+
+        rowsByFirstname = rowsByCode(firstnames, names.length);
+        rowsByLastname = rowsByCode(lastnames, names.length);
+        rowsByCheckin = rowsByValue(checkins);
+        sortedCheckins = valuesOf(checkins, rowsByCheckin);
+        rowsByCheckout = rowsByValue(checkouts);
+        sortedCheckouts = valuesOf(checkouts, rowsByCheckout);
+    }
+
+    public static BookingIndex of(Map<Integer, Booking> bookings) {
+        return new BookingIndex(bookings);
+    }
+
+    // Lists all ids and fetches the bookings concurrently (booker.bulk.concurrency), one pass over the service.
+    // Bookings deleted between listing and fetching are left out.
+    public static BookingIndex load(BookingClient client) {
+        List<Integer> ids = client.snapshotBookingIds(Map.of()).stream().boxed().collect(Collectors.toList());
+        Map<Integer, Booking> bookings = new HashMap<>();
+        client.getBookingsByIds(ids).filter(BookingResult::isFound)
+                .forEach(result -> bookings.put(result.getId(), result.getBooking()));
+        return new BookingIndex(bookings);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public BookingIdSet ids() {
+        return BookingIdSet.of(ids);
+    }
+
+    // The booking as it was in the snapshot, without additionalneeds; null when it wasn't there
+    public Booking get(int id) {
+        int row = Arrays.binarySearch(ids, id);
+        if (row < 0) return null;
+        return Booking.builder()
+                .firstname(name(firstnames[row]))
+                .lastname(name(lastnames[row]))
+                .totalprice(totalprices[row] == NO_PRICE ? null : totalprices[row])
+                .depositpaid(depositpaid.get(row))
+                .bookingdates(Booking.BookingDates.builder()
+                        .checkin(date(checkins[row]))
+                        .checkout(date(checkouts[row]))
+                        .build())
+                .build();
+    }
+
+    // The ids GET /booking should return for the filters when nothing has changed since the snapshot.
+    // Same rules as the service: exact names, checkin strictly after and checkout strictly before the dates,
+    // other and unparseable filters are ignored.
+    public BookingIdSet expectedIds(Map<String, Object> filters) {
+        Filter filter = Filter.of(filters);
+        int[] candidates = null;
+        if (filter.firstname != null) {
+            Integer code = nameCodes.get(filter.firstname);
+            if (code == null) return BookingIdSet.empty();
+            candidates = rowsByFirstname[code];
+        }
+        if (filter.lastname != null) {
+            Integer code = nameCodes.get(filter.lastname);
+            if (code == null) return BookingIdSet.empty();
+            if (candidates == null || rowsByLastname[code].length < candidates.length) candidates = rowsByLastname[code];
+        }
+
+        IntPredicate matches = row -> filter.matches(name(firstnames[row]), name(lastnames[row]), checkins[row], checkouts[row]);
+        int[] result = new int[candidates != null ? candidates.length : ids.length];
+        int size = 0;
+        if (candidates != null) {
+            for (int row : candidates) {
+                if (matches.test(row)) result[size++] = ids[row];
+            }
+        } else if (filter.checkin != NO_DATE || filter.checkout != NO_DATE) {
+            // the smaller of the two date ranges, checked against the other filter
+            int checkinFrom = filter.checkin == NO_DATE ? 0 : firstAbove(sortedCheckins, filter.checkin);
+            int checkoutFrom = firstAbove(sortedCheckouts, NO_DATE);
+            int checkoutTo = filter.checkout == NO_DATE ? sortedCheckouts.length : firstAbove(sortedCheckouts, filter.checkout - 1);
+            if (filter.checkout == NO_DATE || sortedCheckins.length - checkinFrom <= checkoutTo - checkoutFrom) {
+                for (int i = checkinFrom; i < sortedCheckins.length; i++) {
+                    if (matches.test(rowsByCheckin[i])) result[size++] = ids[rowsByCheckin[i]];
+                }
+            } else {
+                for (int i = checkoutFrom; i < checkoutTo; i++) {
+                    if (matches.test(rowsByCheckout[i])) result[size++] = ids[rowsByCheckout[i]];
+                }
+            }
+        } else {
+            return ids();
+        }
+        return BookingIdSet.of(Arrays.copyOf(result, size));
+    }
+
+    // Compares the server's answer for the filters with the snapshot. Other tests create, change and delete bookings
+    // meanwhile, so the ids where the two disagree are fetched again, and only a booking that is still the same as in
+    // the snapshot counts: the server returned it although it doesn't match (added) or missed it (removed).
+    public BookingIdSet.Diff verify(BookingClient client, Map<String, Object> filters) {
+        BookingIdSet actual = client.snapshotBookingIds(filters);
+        BookingIdSet.Diff diff = expectedIds(filters).diff(actual);
+        if (diff.isEmpty()) return diff;
+
+        List<Integer> disagreeing = diff.getAdded().union(diff.getRemoved()).stream().boxed().collect(Collectors.toList());
+        int[] unchanged = client.getBookingsByIds(disagreeing)
+                .filter(result -> result.isFound() && isUnchanged(result.getId(), result.getBooking()))
+                .mapToInt(BookingResult::getId)
+                .toArray();
+        BookingIdSet remaining = BookingIdSet.of(unchanged);
+        return new BookingIdSet.Diff(diff.getAdded().intersection(remaining), diff.getRemoved().intersection(remaining));
+    }
+
+    // Same filterable fields as in the snapshot
+    private boolean isUnchanged(int id, Booking current) {
+        int row = Arrays.binarySearch(ids, id);
+        if (row < 0) return false;
+        Booking.BookingDates dates = current.getBookingdates();
+        return Objects.equals(name(firstnames[row]), current.getFirstname())
+                && Objects.equals(name(lastnames[row]), current.getLastname())
+                && checkins[row] == (dates == null ? NO_DATE : epochDay(dates.getCheckin()))
+                && checkouts[row] == (dates == null ? NO_DATE : epochDay(dates.getCheckout()));
+    }
+
+    private int code(String name) {
+        if (name == null) return NO_NAME;
+        // computeIfAbsent interns the name: every row of a name points to the same dictionary entry
+        return nameCodes.computeIfAbsent(name, key -> nameCodes.size());
+    }
+
+    private String name(int code) {
+        return code == NO_NAME ? null : names[code];
+    }
+
+    private static int[][] rowsByCode(int[] codes, int distinct) {
+        int[] counts = new int[distinct];
+        for (int code : codes) {
+            if (code != NO_NAME) counts[code]++;
+        }
+        int[][] rows = new int[distinct][];
+        for (int code = 0; code < distinct; code++) {
+            rows[code] = new int[counts[code]];
+        }
+        Arrays.fill(counts, 0);
+        for (int row = 0; row < codes.length; row++) {
+            int code = codes[row];
+            if (code != NO_NAME) rows[code][counts[code]++] = row;
+        }
+        return rows;
+    }
+
+    // Rows sorted by their value, without boxing: value and row packed into one long
+    private static int[] rowsByValue(int[] values) {
+        long[] keys = new long[values.length];
+        for (int row = 0; row < values.length; row++) {
+            keys[row] = ((long) values[row] << 32) | row;
+        }
+        Arrays.sort(keys);
+        int[] rows = new int[values.length];
+        for (int i = 0; i < keys.length; i++) {
+            rows[i] = (int) keys[i];
+        }
+        return rows;
+    }
+
+    private static int[] valuesOf(int[] values, int[] rows) {
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            sorted[i] = values[rows[i]];
+        }
+        return sorted;
+    }
+
+    // Position of the first value greater than the bound
+    private static int firstAbove(int[] sorted, int bound) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= bound) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private static int epochDay(String date) {
+        if (date == null) return NO_DATE;
+        try {
+            return (int) LocalDate.parse(date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return NO_DATE;
+        }
+    }
+
+    private static String date(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    // The filters of one request, with the dates as epoch days
+    private static final class Filter {
+        private final String firstname;
+        private final String lastname;
+        private final int checkin;
+        private final int checkout;
+
+        private Filter(String firstname, String lastname, int checkin, int checkout) {
+            this.firstname = firstname;
+            this.lastname = lastname;
+            this.checkin = checkin;
+            this.checkout = checkout;
+        }
+
+        static Filter of(Map<String, Object> filters) {
+            return new Filter(text(filters.get("firstname")), text(filters.get("lastname")),
+                    epochDay(text(filters.get("checkin"))), epochDay(text(filters.get("checkout"))));
+        }
+
+        private static String text(Object value) {
+            return value == null ? null : value.toString();
+        }
+
+        boolean matches(String firstname, String lastname, int checkin, int checkout) {
+            if (this.firstname != null && !this.firstname.equals(firstname)) return false;
+            if (this.lastname != null && !this.lastname.equals(lastname)) return false;
+            if (this.checkin != NO_DATE && (checkin == NO_DATE || checkin <= this.checkin)) return false;
+            return this.checkout == NO_DATE || (checkout != NO_DATE && checkout < this.checkout);
+        }
+    }
+}
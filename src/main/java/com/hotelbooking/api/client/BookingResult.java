@@ -0,0 +1,42 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.model.Booking;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Outcome of fetching one booking, e.g. in a bulk request: either the booking, the HTTP status it was refused with,
+// or the error that prevented a response. One failed id doesn't fail the others.
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BookingResult {
+
+    private final int id;
+    // 0 when no response was received
+    private final int status;
+    private final Booking booking;
+    private final Throwable error;
+
+    static BookingResult found(int id, Booking booking) {
+        return new BookingResult(id, 200, booking, null);
+    }
+
+    static BookingResult refused(int id, int status, String body) {
+        return new BookingResult(id, status, null, new IllegalStateException("GET /booking/" + id + " responded with " + status + ": " + body));
+    }
+
+    static BookingResult failed(int id, Throwable error) {
+        return new BookingResult(id, 0, null, error);
+    }
+
+    public boolean isFound() {
+        return booking != null;
+    }
+
+    // e.g. deleted by another test between listing and fetching
+    public boolean isNotFound() {
+        return status == 404;
+    }
+}
@@ -0,0 +1,120 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.model.Booking;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.sax.SAXSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// XML of Booking and BookingDates with one JAXB context per JVM. Marshallers, unmarshallers and SAX parsers are
+// not thread-safe and expensive to create, so they are pooled: a call borrows one and gives it back, a new one is
+// created only when all are in use. Input is parsed without DTDs, so external entities are never resolved.
+public final class BookingXmlCodec {
+
+    private static final QName BOOKING_DATES = new QName("bookingdates");
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final JAXBContext CONTEXT = createContext();
+    private static final SAXParserFactory PARSER_FACTORY = createParserFactory();
+    private static final BlockingQueue<Marshaller> MARSHALLERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Decoder> DECODERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private BookingXmlCodec() {
+    }
+
+    public static byte[] toXml(Booking booking) {
+        return marshal(booking);
+    }
+
+    public static byte[] toXml(Booking.BookingDates bookingDates) {
+        return marshal(new JAXBElement<>(BOOKING_DATES, Booking.BookingDates.class, bookingDates));
+    }
+
+    public static String toXmlString(Booking booking) {
+        return new String(toXml(booking), StandardCharsets.UTF_8);
+    }
+
+    public static Booking readBooking(byte[] xml) {
+        return unmarshal(xml, Booking.class);
+    }
+
+    public static Booking.BookingDates readBookingDates(byte[] xml) {
+        return unmarshal(xml, Booking.BookingDates.class);
+    }
+
+    private static byte[] marshal(Object value) {
+        Marshaller marshaller = MARSHALLERS.poll();
+        try {
+            if (marshaller == null) marshaller = CONTEXT.createMarshaller();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+            marshaller.marshal(value, out);
+            return out.toByteArray();
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Cannot write " + value.getClass().getSimpleName() + " as XML", e);
+        } finally {
+            // dropped when the pool is full
+            if (marshaller != null) MARSHALLERS.offer(marshaller);
+        }
+    }
+
+    private static <T> T unmarshal(byte[] xml, Class<T> type) {
+        Decoder decoder = DECODERS.poll();
+        try {
+            if (decoder == null) decoder = new Decoder();
+            SAXSource source = new SAXSource(decoder.parser, new InputSource(new ByteArrayInputStream(xml)));
+            return decoder.unmarshaller.unmarshal(source, type).getValue();
+        } catch (JAXBException e) {
+            throw new IllegalArgumentException("Malformed XML " + type.getSimpleName(), e);
+        } finally {
+            if (decoder != null) DECODERS.offer(decoder);
+        }
+    }
+
+    private static JAXBContext createContext() {
+        try {
+            return JAXBContext.newInstance(Booking.class);
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Cannot create JAXB context for Booking", e);
+        }
+    }
+
+    private static SAXParserFactory createParserFactory() {
+        try {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory;
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Cannot configure the XML parser", e);
+        }
+    }
+
+    // An unmarshaller with the parser it reads from, reused together
+    private static final class Decoder {
+        final Unmarshaller unmarshaller;
+        final XMLReader parser;
+
+        Decoder() throws JAXBException {
+            unmarshaller = CONTEXT.createUnmarshaller();
+            try {
+                parser = PARSER_FACTORY.newSAXParser().getXMLReader();
+            } catch (ParserConfigurationException | SAXException e) {
+                throw new IllegalStateException("Cannot create an XML parser", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.hotelbooking.api.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hotelbooking.api.metrics.ClientMetrics;
+import lombok.Getter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Recorded HTTP exchanges in a compact binary file: per exchange the request (method, path, query, Accept,
+// headers, body) followed by the response (status, headers, body), each prefixed with its length.
+// For replay the file is memory-mapped and only the request parts are read to build the index,
+// responses are decoded from the mapping when they are served.
+public class Cassette implements AutoCloseable {
+
+    private static final int MAGIC = 0x424B4331; // "BKC1"
+    // credentials are not written to the file: these headers, the password sent to POST /auth and the token it returns
+    private static final List<String> REDACTED_HEADERS = List.of("cookie", "authorization");
+    private static final String REDACTED = "<redacted>";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final DataOutputStream out;
+
+    private final ByteBuffer mapped;
+    // offsets of the responses, per key in the recorded order. Keys from the most to the least specific:
+    // the whole request, the request without its body, the operation (ids in the path replaced, no query)
+    private final List<Map<String, int[]>> index;
+    private final Map<String, AtomicInteger> served = new ConcurrentHashMap<>();
+
+    private Cassette(DataOutputStream out, ByteBuffer mapped, List<Map<String, int[]>> index) {
+        this.out = out;
+        this.mapped = mapped;
+        this.index = index;
+    }
+
+    public static Cassette recordTo(Path file) {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            return new Cassette(out, null, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static Cassette replayFrom(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.remaining() < Integer.BYTES || mapped.getInt() != MAGIC)
+                throw new IllegalStateException(file + " is not a booking cassette");
+
+            List<Map<String, List<Integer>>> offsets = List.of(new HashMap<>(), new HashMap<>(), new HashMap<>());
+            while (mapped.hasRemaining()) {
+                int requestLength = readLength(mapped);
+                int requestEnd = mapped.position() + requestLength;
+                String method = readString(mapped);
+                String path = readString(mapped);
+                String query = readString(mapped);
+                String accept = readString(mapped);
+                skipHeaders(mapped);
+                byte[] body = readBytes(mapped);
+                mapped.position(requestEnd);
+
+                int responseOffset = mapped.position();
+                int responseLength = readLength(mapped);
+                mapped.position(mapped.position() + responseLength);
+
+                String[] keys = keys(method, path, query, accept, body);
+                for (int level = 0; level < keys.length; level++) {
+                    offsets.get(level).computeIfAbsent(keys[level], key -> new ArrayList<>()).add(responseOffset);
+                }
+            }
+
+            List<Map<String, int[]>> index = new ArrayList<>();
+            for (Map<String, List<Integer>> level : offsets) {
+                Map<String, int[]> compact = new HashMap<>(level.size() * 2);
+                level.forEach((key, list) -> compact.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+                index.add(compact);
+            }
+            return new Cassette(null, mapped, index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (TruncatedException e) {
+            throw new IllegalStateException(file + " is truncated: " + e.getMessage(), e);
+        }
+    }
+
+    public void record(String method, String path, String query, String accept, Map<String, String> requestHeaders,
+                       byte[] requestBody, Recorded response) {
+        boolean auth = "POST".equals(method) && path.endsWith("/auth");
+        try {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            DataOutputStream requestOut = new DataOutputStream(request);
+            requestOut.writeUTF(method);
+            requestOut.writeUTF(path);
+            requestOut.writeUTF(query);
+            requestOut.writeUTF(accept);
+            writeHeaders(requestOut, requestHeaders);
+            writeBytes(requestOut, auth ? redacted(requestBody, "password") : requestBody);
+
+            ByteArrayOutputStream reply = new ByteArrayOutputStream();
+            DataOutputStream replyOut = new DataOutputStream(reply);
+            replyOut.writeShort(response.getStatusCode());
+            replyOut.writeUTF(response.getStatusLine());
+            writeHeaders(replyOut, response.getHeaders());
+            writeBytes(replyOut, auth ? redacted(response.getBody(), "token") : response.getBody());
+
+            writeLock.lock();
+            try {
+                out.writeInt(request.size());
+                request.writeTo(out);
+                out.writeInt(reply.size());
+                reply.writeTo(out);
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The next recorded response for the request, null when nothing similar was recorded.
+    // Repeated requests get the responses in the recorded order, the last one is repeated when they run out.
+    public Recorded replay(String method, String path, String query, String accept, byte[] requestBody) {
+        String[] keys = keys(method, path, query, accept, requestBody);
+        for (int level = 0; level < keys.length; level++) {
+            int[] responses = index.get(level).get(keys[level]);
+            if (responses == null) continue;
+            int occurrence = served.computeIfAbsent(level + keys[level], key -> new AtomicInteger()).getAndIncrement();
+            return readResponse(responses[Math.min(occurrence, responses.length - 1)]);
+        }
+        return null;
+    }
+
+    public int size() {
+        return index == null ? 0 : index.get(0).values().stream().mapToInt(offsets -> offsets.length).sum();
+    }
+
+    @Override
+    public void close() {
+        if (out == null) return;
+        writeLock.lock();
+        try {
+            out.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Recorded readResponse(int offset) {
+        // a view per call, the mapping itself is shared between threads
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position(offset + Integer.BYTES);
+        require(buffer, Short.BYTES);
+        int status = buffer.getShort();
+        String statusLine = readString(buffer);
+        Map<String, String> headers = new LinkedHashMap<>();
+        require(buffer, Short.BYTES);
+        int headerCount = buffer.getShort();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(readString(buffer), readString(buffer));
+        }
+        return new Recorded(status, statusLine, headers, readBytes(buffer));
+    }
+
+    private static String[] keys(String method, String path, String query, String accept, byte[] body) {
+        String request = method + " " + path + "?" + query + " " + accept;
+        return new String[]{
+                request + " " + new String(body, StandardCharsets.UTF_8),
+                request,
+                ClientMetrics.operationName(method, path) + " " + accept
+        };
+    }
+
+    // The JSON object with the field replaced, other bodies as they are
+    private static byte[] redacted(byte[] body, String field) {
+        try {
+            JsonNode json = MAPPER.readTree(body);
+            if (json instanceof ObjectNode && json.has(field)) {
+                ((ObjectNode) json).put(field, REDACTED);
+                return MAPPER.writeValueAsBytes(json);
+            }
+        } catch (IOException e) {
+            // not JSON, e.g. an error page
+        }
+        return body;
+    }
+
+    private static void writeHeaders(DataOutputStream out, Map<String, String> headers) throws IOException {
+        out.writeShort(headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            out.writeUTF(header.getKey());
+            out.writeUTF(REDACTED_HEADERS.contains(header.getKey().toLowerCase()) ? REDACTED : header.getValue());
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void skipHeaders(ByteBuffer buffer) {
+        require(buffer, Short.BYTES);
+        int headerCount = buffer.getShort();
+        for (int i = 0; i < headerCount * 2; i++) {
+            readString(buffer);
+        }
+    }
+
+    // Same layout as DataOutputStream.writeUTF, which is plain UTF-8 for the strings that occur in HTTP
+    private static String readString(ByteBuffer buffer) {
+        require(buffer, Short.BYTES);
+        int length = buffer.getShort() & 0xFFFF;
+        require(buffer, length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[readLength(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    // A length prefix, checked against what is left of the file
+    private static int readLength(ByteBuffer buffer) {
+        require(buffer, Integer.BYTES);
+        int length = buffer.getInt();
+        if (length < 0) throw new TruncatedException("negative length " + length + " at " + (buffer.position() - Integer.BYTES));
+        require(buffer, length);
+        return length;
+    }
+
+    private static void require(ByteBuffer buffer, int bytes) {
+        if (bytes > buffer.remaining())
+            throw new TruncatedException(bytes + " bytes expected at " + buffer.position() + ", " + buffer.remaining() + " left");
+    }
+
+    private static final class TruncatedException extends RuntimeException {
+        private TruncatedException(String message) {
+            super(message);
+        }
+    }
+
+    @Getter
+    public static class Recorded {
+        private final int statusCode;
+        private final String statusLine;
+        private final Map<String, String> headers;
+        private final byte[] body;
+
+        public Recorded(int statusCode, String statusLine, Map<String, String> headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.statusLine = statusLine;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public String toString() {
+            return statusLine + " (" + body.length + " bytes)";
+        }
+    }
+}
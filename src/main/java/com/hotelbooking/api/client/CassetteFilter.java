@@ -0,0 +1,213 @@
+package com.hotelbooking.api.client;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// booker.cassette.mode = record writes every BookingClient exchange to booker.cassette.file,
+// replay answers the requests from that file without sending them.
+// Replay matches the whole request first, then the request without its body (bodies carry random test data),
+// then only the operation, e.g. "GET /booking/{id}". Replays are reliable only for a sequential run without fixture
+// prefetching (booker.fixtures.pool.size = 0), which sends the same requests in the same order as the recording;
+// booker.cassette.mode = replay fails when the first client is created otherwise.
+// The java.net.http requests of AsyncBookingClient and BookingClient.streamBookingIds don't pass RestAssured filters,
+// they go through exchange and exchangeAsync with the same matching.
+public class CassetteFilter implements Filter {
+
+    private static final String PARALLEL = "junit.jupiter.execution.parallel.enabled";
+
+    // the file is opened under the lock, so not synchronized (virtual threads would be pinned meanwhile)
+    private static final ReentrantLock CONFIGURED_LOCK = new ReentrantLock();
+    private static CassetteFilter configured;
+    private static boolean configuredLoaded;
+
+    private final Cassette cassette;
+    private final boolean replay;
+
+    private CassetteFilter(Cassette cassette, boolean replay) {
+        this.cassette = cassette;
+        this.replay = replay;
+    }
+
+    public static CassetteFilter recording(Cassette cassette) {
+        return new CassetteFilter(cassette, false);
+    }
+
+    public static CassetteFilter replaying(Cassette cassette) {
+        return new CassetteFilter(cassette, true);
+    }
+
+    // The filter of booker.cassette.mode for all clients of this JVM, null when it's off
+    public static CassetteFilter configured() {
+        CONFIGURED_LOCK.lock();
+        try {
+            if (!configuredLoaded) {
+                configuredLoaded = true;
+                String mode = loadProperty("booker.cassette.mode", "off").toLowerCase();
+                String file = loadProperty("booker.cassette.file", "cassettes/booker.cassette");
+                if (mode.equals("record")) {
+                    Cassette cassette = Cassette.recordTo(Paths.get(file));
+                    Runtime.getRuntime().addShutdownHook(new Thread(cassette::close, "booker-cassette-close"));
+                    configured = recording(cassette);
+                } else if (mode.equals("replay")) {
+                    requireSequentialRun(loadIntProperty("booker.fixtures.pool.size", 8), isParallelRun());
+                    configured = replaying(Cassette.replayFrom(Paths.get(file)));
+                }
+            }
+            return configured;
+        } finally {
+            CONFIGURED_LOCK.unlock();
+        }
+    }
+
+    // Parallel tests and the fixture pool send the requests in another order than the recording, their responses
+    // would be served to the wrong calls
+    static void requireSequentialRun(int fixturePoolSize, boolean parallel) {
+        if (fixturePoolSize != 0)
+            throw new IllegalStateException("booker.cassette.mode = replay needs -Dbooker.fixtures.pool.size=0, "
+                    + "the pool creates bookings in the background (booker.fixtures.pool.size = " + fixturePoolSize + ")");
+        if (parallel)
+            throw new IllegalStateException("booker.cassette.mode = replay needs a sequential run, -D" + PARALLEL + "=false");
+    }
+
+    // The JUnit setting: the system property, otherwise junit-platform.properties
+    private static boolean isParallelRun() {
+        String enabled = System.getProperty(PARALLEL);
+        if (enabled == null) {
+            try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream("junit-platform.properties")) {
+                if (in == null) return false;
+                Properties properties = new Properties();
+                properties.load(in);
+                enabled = properties.getProperty(PARALLEL, "false");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return Boolean.parseBoolean(enabled.trim());
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        URI uri = URI.create(requestSpec.getURI());
+        String method = requestSpec.getMethod();
+        String path = uri.getRawPath();
+        String query = sortedQuery(uri.getRawQuery());
+        String accept = String.valueOf(requestSpec.getHeaders().getValue("Accept"));
+        byte[] body = bodyBytes(requestSpec.getBody());
+
+        if (replay) {
+            Cassette.Recorded recorded = replay(method, path, query, accept, body);
+            List<Header> headers = recorded.getHeaders().entrySet().stream()
+                    .map(header -> new Header(header.getKey(), header.getValue()))
+                    .collect(Collectors.toList());
+            ResponseBuilder response = new ResponseBuilder()
+                    .setStatusCode(recorded.getStatusCode())
+                    .setStatusLine(recorded.getStatusLine())
+                    .setHeaders(new Headers(headers))
+                    .setBody(recorded.getBody());
+            // header names keep the case the server sent, e.g. "Content-type"
+            recorded.getHeaders().forEach((name, value) -> {
+                if (name.equalsIgnoreCase("Content-Type")) response.setContentType(value);
+            });
+            return response.build();
+        }
+
+        Response response = ctx.next(requestSpec, responseSpec);
+        Map<String, String> requestHeaders = new LinkedHashMap<>();
+        requestSpec.getHeaders().forEach(header -> requestHeaders.put(header.getName(), header.getValue()));
+        Map<String, String> responseHeaders = new LinkedHashMap<>();
+        response.getHeaders().forEach(header -> responseHeaders.put(header.getName(), header.getValue()));
+        cassette.record(method, path, query, accept, requestHeaders, body,
+                new Cassette.Recorded(response.getStatusCode(), response.getStatusLine(), responseHeaders, response.asByteArray()));
+        return response;
+    }
+
+    // The response to a java.net.http request: replayed, or sent with the client and recorded
+    Cassette.Recorded exchange(HttpClient client, HttpRequest request, byte[] body) throws IOException, InterruptedException {
+        if (replay) return replay(request, body);
+        return record(request, body, client.send(request, HttpResponse.BodyHandlers.ofByteArray()));
+    }
+
+    CompletableFuture<Cassette.Recorded> exchangeAsync(HttpClient client, HttpRequest request, byte[] body) {
+        if (replay) {
+            try {
+                return CompletableFuture.completedFuture(replay(request, body));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> record(request, body, response));
+    }
+
+    private Cassette.Recorded replay(HttpRequest request, byte[] body) {
+        URI uri = request.uri();
+        return replay(request.method(), uri.getRawPath(), sortedQuery(uri.getRawQuery()), accept(request), body);
+    }
+
+    private Cassette.Recorded replay(String method, String path, String query, String accept, byte[] body) {
+        Cassette.Recorded recorded = cassette.replay(method, path, query, accept, body);
+        if (recorded == null)
+            throw new IllegalStateException("No recorded response for " + method + " " + path + "?" + query);
+        return recorded;
+    }
+
+    private Cassette.Recorded record(HttpRequest request, byte[] body, HttpResponse<byte[]> response) {
+        URI uri = request.uri();
+        Map<String, String> requestHeaders = new LinkedHashMap<>();
+        request.headers().map().forEach((name, values) -> requestHeaders.put(name, String.join(",", values)));
+        Map<String, String> responseHeaders = new LinkedHashMap<>();
+        response.headers().map().forEach((name, values) -> responseHeaders.put(name, String.join(",", values)));
+        String version = response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+        Cassette.Recorded recorded = new Cassette.Recorded(response.statusCode(), version + " " + response.statusCode(),
+                responseHeaders, response.body());
+        cassette.record(request.method(), uri.getRawPath(), sortedQuery(uri.getRawQuery()), accept(request),
+                requestHeaders, body, recorded);
+        return recorded;
+    }
+
+    // as String.valueOf of a missing RestAssured header, so that both kinds of requests have the same keys
+    private static String accept(HttpRequest request) {
+        return request.headers().firstValue("Accept").orElse("null");
+    }
+
+    // Filters come from a map, their order isn't stable between runs
+    private static String sortedQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) return "";
+        String[] parameters = rawQuery.split("&");
+        Arrays.sort(parameters);
+        return String.join("&", parameters);
+    }
+
+    private static byte[] bodyBytes(Object body) {
+        if (body == null) return new byte[0];
+        if (body instanceof byte[]) return (byte[]) body;
+        return String.valueOf(body).getBytes(StandardCharsets.UTF_8);
+    }
+}
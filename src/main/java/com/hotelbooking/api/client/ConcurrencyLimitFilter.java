@@ -0,0 +1,42 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.metrics.ClientMetrics;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.net.URI;
+
+// Every exchange of BookingClient, retries and hedges included, takes a slot of the shared ConcurrencyLimiter.
+// First in the chain, so the time spent waiting for a slot isn't measured as the host's latency.
+public class ConcurrencyLimitFilter implements Filter {
+
+    private final ConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    // null when booker.limiter.enabled is off
+    public static ConcurrencyLimitFilter configured() {
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.shared();
+        return limiter == null ? null : new ConcurrencyLimitFilter(limiter);
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        String operation = ClientMetrics.operationName(requestSpec.getMethod(), URI.create(requestSpec.getURI()).getPath());
+        ConcurrencyLimiter.Permit permit = limiter.acquire(operation);
+        int status = 0;
+        try {
+            Response response = ctx.next(requestSpec, responseSpec);
+            status = response.getStatusCode();
+            return response;
+        } finally {
+            // an exception (IOException, thrown undeclared by RestAssured) means no response: status 0
+            permit.release(status);
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.hotelbooking.api.client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadBooleanProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadLongProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Requests in flight to the booking host, with a limit that adapts to how the host copes (AIMD): every response in
+// time to a request that saw the limit reached adds 1/limit, so a limit that is used grows by one per round of
+// requests; a call without a response, answered
+// with 429, 503 or 504, or slower than latency.tolerance times the fastest response of the previous window of its
+// operation (e.g. "GET /booking" is slower than "GET /booking/{id}" by nature), multiplies it by backoff, once per
+// round. Calls over the limit wait in a bounded queue for a bounded time and then fail; blocking and async calls
+// share the queue and get the free slots in the order they came.
+// Shared by BookingClient (ConcurrencyLimitFilter) and AsyncBookingClient, so they find the sustainable limit together.
+public class ConcurrencyLimiter {
+
+    // responses per latency window
+    private static final int WINDOW = 100;
+
+    // operation of the calls that don't name one
+    private static final String ANY_OPERATION = "";
+
+    private static final ReentrantLock SHARED_LOCK = new ReentrantLock();
+    private static volatile ConcurrencyLimiter shared;
+    private static volatile boolean sharedLoaded;
+    // the waits of acquire() on a thread are reported there, see IdempotentCalls
+    private static final ThreadLocal<SlotWait> SLOT_WAIT = new ThreadLocal<>();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoff;
+    private final double latencyTolerance;
+    private final long latencyFloorNanos;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    // times a request took the last free slot, a request that sees it change was sent at the limit
+    private long saturations;
+    // a decrease reacts to requests sent after the previous one only
+    private long lastDecrease;
+    private final Map<String, LatencyWindow> windows = new HashMap<>();
+
+    private long decreases;
+    private long rejected;
+    private int minLimitSeen;
+    private int maxQueueDepthSeen;
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoff, double latencyTolerance,
+                              long latencyFloorMillis, int maxQueue, long maxWaitMillis) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, initialLimit));
+        this.backoff = backoff;
+        this.latencyTolerance = latencyTolerance;
+        this.latencyFloorNanos = TimeUnit.MILLISECONDS.toNanos(latencyFloorMillis);
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.lastDecrease = System.nanoTime();
+        this.minLimitSeen = (int) limit;
+    }
+
+    // Settings of application.properties, one limiter per JVM since all clients talk to the same host; null when off
+    public static ConcurrencyLimiter shared() {
+        if (!sharedLoaded) {
+            SHARED_LOCK.lock();
+            try {
+                if (!sharedLoaded) {
+                    if (loadBooleanProperty("booker.limiter.enabled")) {
+                        shared = new ConcurrencyLimiter(
+                                loadIntProperty("booker.limiter.initial", 32),
+                                loadIntProperty("booker.limiter.min", 2),
+                                loadIntProperty("booker.limiter.max", 512),
+                                Double.parseDouble(loadProperty("booker.limiter.backoff", "0.9")),
+                                Double.parseDouble(loadProperty("booker.limiter.latency.tolerance", "4")),
+                                loadLongProperty("booker.limiter.latency.floor.ms", 200),
+                                loadIntProperty("booker.limiter.queue.max", 1000),
+                                loadLongProperty("booker.limiter.queue.wait.ms", 30_000));
+                    }
+                    sharedLoaded = true;
+                }
+            } finally {
+                SHARED_LOCK.unlock();
+            }
+        }
+        return shared;
+    }
+
+    public Permit acquire() {
+        return acquire(ANY_OPERATION);
+    }
+
+    // Blocks until the call may start, release the permit with the response status (0 - none) in a finally block.
+    // `operation` is the ClientMetrics name of the call, its latency is compared with calls of the same operation.
+    public Permit acquire(String operation) {
+        List<Waiter> handedOver = null;
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && inFlight < (int) limit) return grant(operation);
+            if (waiting.size() >= maxQueue) throw rejected("the queue is full");
+            Waiter waiter = new Waiter(operation, null, lock.newCondition());
+            waiting.add(waiter);
+            trackQueueDepth();
+            SlotWait wait = SLOT_WAIT.get();
+            if (wait != null) wait.queued();
+            try {
+                long remaining = maxWaitNanos;
+                while (waiter.permit == null) {
+                    if (remaining <= 0) {
+                        waiting.remove(waiter);
+                        throw rejected("no slot was free in " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+                    }
+                    remaining = waiter.granted.awaitNanos(remaining);
+                }
+                return waiter.permit;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!waiting.remove(waiter)) {
+                    // the slot was handed over along with the interrupt, it goes to the next waiter
+                    inFlight--;
+                    handedOver = handOver();
+                }
+                throw new IllegalStateException("Interrupted while waiting for a request slot", e);
+            } finally {
+                if (wait != null) wait.dequeued();
+            }
+        } finally {
+            lock.unlock();
+            if (handedOver != null) complete(handedOver);
+        }
+    }
+
+    public CompletableFuture<Permit> acquireAsync() {
+        return acquireAsync(ANY_OPERATION);
+    }
+
+    // Completes with the permit when the call may start, or exceptionally like acquire() when it may not
+    public CompletableFuture<Permit> acquireAsync(String operation) {
+        CompletableFuture<Permit> waiter = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && inFlight < (int) limit) return CompletableFuture.completedFuture(grant(operation));
+            if (waiting.size() >= maxQueue) return CompletableFuture.failedFuture(rejected("the queue is full"));
+            waiting.add(new Waiter(operation, waiter, null));
+            trackQueueDepth();
+        } finally {
+            lock.unlock();
+        }
+        CompletableFuture.delayedExecutor(maxWaitNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            IllegalStateException timeout = null;
+            lock.lock();
+            try {
+                // still waiting, a permit handed over meanwhile has taken it out of the queue
+                if (waiting.removeIf(queued -> queued.future == waiter)) {
+                    timeout = rejected("no slot was free in " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms");
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (timeout != null) waiter.completeExceptionally(timeout);
+        });
+        return waiter;
+    }
+
+    private Permit grant(String operation) {
+        long saturationsBefore = saturations;
+        if (++inFlight >= (int) limit) saturations++;
+        return new Permit(operation, System.nanoTime(), saturationsBefore);
+    }
+
+    private void release(Permit permit, int status) {
+        long now = System.nanoTime();
+        List<Waiter> handedOver;
+        lock.lock();
+        try {
+            inFlight--;
+            adjust(permit, now - permit.start, status, now);
+            handedOver = handOver();
+        } finally {
+            lock.unlock();
+        }
+        complete(handedOver);
+    }
+
+    // Free slots to the waiters in the order they came, as many as there are now that the limit may have grown; the
+    // async ones are returned to be completed outside the lock, their calls start on the completing thread
+    private List<Waiter> handOver() {
+        List<Waiter> async = new ArrayList<>();
+        while (!waiting.isEmpty() && inFlight < (int) limit) {
+            Waiter waiter = waiting.poll();
+            waiter.permit = grant(waiter.operation);
+            if (waiter.future != null) async.add(waiter);
+            else waiter.granted.signal();
+        }
+        return async;
+    }
+
+    private static void complete(List<Waiter> handedOver) {
+        handedOver.forEach(waiter -> waiter.future.complete(waiter.permit));
+    }
+
+    private void adjust(Permit permit, long latencyNanos, int status, long now) {
+        boolean overloaded = status == 0 || status == 429 || status == 503 || status == 504;
+        if (!overloaded) {
+            LatencyWindow window = windows.computeIfAbsent(permit.operation, key -> new LatencyWindow());
+            window.add(latencyNanos);
+            // until the first window of the operation is complete only errors count
+            overloaded = window.baselineNanos > 0
+                    && latencyNanos > Math.max(latencyFloorNanos, latencyTolerance * window.baselineNanos);
+        }
+        if (overloaded) {
+            if (permit.start - lastDecrease > 0) {
+                limit = Math.max(minLimit, limit * backoff);
+                lastDecrease = now;
+                decreases++;
+                minLimitSeen = Math.min(minLimitSeen, (int) limit);
+            }
+        } else if (saturations != permit.saturationsBefore) {
+            // only a limit that is used grows, an idle client doesn't learn anything about the host
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private IllegalStateException rejected(String reason) {
+        rejected++;
+        return new IllegalStateException("Request to the booking host rejected, " + reason
+                + " (limit " + (int) limit + ", in flight " + inFlight + ", queued " + queueDepth() + ")");
+    }
+
+    private int queueDepth() {
+        return waiting.size();
+    }
+
+    private void trackQueueDepth() {
+        maxQueueDepthSeen = Math.max(maxQueueDepthSeen, queueDepth());
+    }
+
+    public int getLimit() {
+        return read(() -> (int) limit);
+    }
+
+    public int getInFlight() {
+        return read(() -> inFlight);
+    }
+
+    public int getQueueDepth() {
+        return read(this::queueDepth);
+    }
+
+    public long getDecreases() {
+        return read(() -> decreases);
+    }
+
+    public long getRejected() {
+        return read(() -> rejected);
+    }
+
+    @Override
+    public String toString() {
+        return read(() -> "limit " + (int) limit + " (lowest " + minLimitSeen + ", " + decreases + " decreases), in flight "
+                + inFlight + ", queued " + queueDepth() + " (at most " + maxQueueDepthSeen + "), rejected " + rejected);
+    }
+
+    private <T> T read(Supplier<T> value) {
+        lock.lock();
+        try {
+            return value.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reports the waits of acquire() on this thread to `wait` while the call runs
+    static <T> T reportingWaits(SlotWait wait, Supplier<T> call) {
+        SlotWait previous = SLOT_WAIT.get();
+        SLOT_WAIT.set(wait);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) SLOT_WAIT.remove();
+            else SLOT_WAIT.set(previous);
+        }
+    }
+
+    // Whether a call waits in the queue, and when it stopped waiting; one call, so one wait at most
+    static final class SlotWait {
+        private final CompletableFuture<Void> dequeued = new CompletableFuture<>();
+        private volatile boolean queued;
+        private volatile long dequeuedAt;
+
+        private void queued() {
+            queued = true;
+        }
+
+        private void dequeued() {
+            dequeuedAt = System.nanoTime();
+            queued = false;
+            dequeued.complete(null);
+        }
+
+        boolean isQueued() {
+            return queued;
+        }
+
+        CompletableFuture<Void> whenDequeued() {
+            return dequeued;
+        }
+
+        // when the call left the queue, `otherwise` when it didn't wait
+        long dequeuedAt(long otherwise) {
+            long at = dequeuedAt;
+            return at == 0 ? otherwise : at;
+        }
+    }
+
+    // Fastest response of the current window of an operation, and of the previous one as its baseline
+    private static final class LatencyWindow {
+        private long baselineNanos;
+        private long minNanos = Long.MAX_VALUE;
+        private int samples;
+
+        void add(long latencyNanos) {
+            minNanos = Math.min(minNanos, latencyNanos);
+            if (++samples == WINDOW) {
+                baselineNanos = minNanos;
+                minNanos = Long.MAX_VALUE;
+                samples = 0;
+            }
+        }
+    }
+
+    // A call in the queue: a blocking one waits for `granted`, an async one is completed through `future`
+    private static final class Waiter {
+        private final String operation;
+        private final CompletableFuture<Permit> future;
+        private final Condition granted;
+        private Permit permit;
+
+        private Waiter(String operation, CompletableFuture<Permit> future, Condition granted) {
+            this.operation = operation;
+            this.future = future;
+            this.granted = granted;
+        }
+    }
+
+    // One call in flight, released exactly once
+    public final class Permit {
+        private final String operation;
+        private final long start;
+        private final long saturationsBefore;
+        private boolean released;
+
+        private Permit(String operation, long start, long saturationsBefore) {
+            this.operation = operation;
+            this.start = start;
+            this.saturationsBefore = saturationsBefore;
+        }
+
+        // the status of the response, 0 when none was received
+        public void release(int status) {
+            if (released) return;
+            released = true;
+            ConcurrencyLimiter.this.release(this, status);
+        }
+    }
+}
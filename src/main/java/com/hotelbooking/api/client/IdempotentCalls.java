@@ -0,0 +1,273 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.metrics.ClientMetrics;
+import com.hotelbooking.api.metrics.MetricsRegistry;
+import com.hotelbooking.api.metrics.OperationStats;
+import io.restassured.response.Response;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Tail latency controls for requests that can safely be sent twice (GETs).
+// Hedging: when no response has arrived after the booker.hedge.percentile latency of the operation, a second
+// identical request is sent and the first response wins. The delay starts when the request has its slot of the
+// ConcurrencyLimiter, the time queued there isn't the host's latency and a hedge would only queue as well. Retrying: a call without a response, or answered with
+// 429 or 5xx, is repeated after a jittered exponential backoff, as long as the shared RetryBudget allows it.
+public class IdempotentCalls {
+
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private static final ReentrantLock SHARED_LOCK = new ReentrantLock();
+    private static volatile IdempotentCalls shared;
+
+    private final double hedgePercentile;
+    private final long minHedgeDelayMillis;
+    private final int minHedgeSamples;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final RetryBudget retryBudget;
+    // latencies of the operations the hedge delays are taken from, and the scope attempts run in
+    private final MetricsRegistry metrics;
+    // created by the first hedged call, without hedging (the default) no pool is started
+    private final ReentrantLock executorLock = new ReentrantLock();
+    private volatile ExecutorService executor;
+
+    private final LongAdder hedgesFired = new LongAdder();
+    private final LongAdder hedgesWon = new LongAdder();
+
+    public IdempotentCalls(double hedgePercentile, long minHedgeDelayMillis, int minHedgeSamples,
+                           int maxAttempts, long backoffMillis, RetryBudget retryBudget) {
+        this(hedgePercentile, minHedgeDelayMillis, minHedgeSamples, maxAttempts, backoffMillis, retryBudget, ClientMetrics.registry());
+    }
+
+    IdempotentCalls(double hedgePercentile, long minHedgeDelayMillis, int minHedgeSamples,
+                    int maxAttempts, long backoffMillis, RetryBudget retryBudget, MetricsRegistry metrics) {
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+        this.minHedgeSamples = minHedgeSamples;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+        this.retryBudget = retryBudget;
+        this.metrics = metrics;
+    }
+
+    // Settings of application.properties, shared by all clients of the JVM so that the retry budget is global
+    public static IdempotentCalls shared() {
+        if (shared == null) {
+            SHARED_LOCK.lock();
+            try {
+                if (shared == null) {
+                    shared = new IdempotentCalls(
+                            Double.parseDouble(loadProperty("booker.hedge.percentile", "0")),
+                            loadIntProperty("booker.hedge.min.delay.ms", 50),
+                            loadIntProperty("booker.hedge.min.samples", 20),
+                            loadIntProperty("booker.retry.max.attempts", 3),
+                            loadIntProperty("booker.retry.backoff.ms", 100),
+                            new RetryBudget(Double.parseDouble(loadProperty("booker.retry.budget.ratio", "0.1")),
+                                    loadIntProperty("booker.retry.budget.max", 10)));
+                }
+            } finally {
+                SHARED_LOCK.unlock();
+            }
+        }
+        return shared;
+    }
+
+    // Runs the request, hedged and retried; `operation` is the ClientMetrics name its latencies are recorded under
+    public Response call(String operation, Supplier<Response> request) {
+        retryBudget.deposit();
+        for (int attempt = 1; ; attempt++) {
+            Response response = null;
+            Exception error = null;
+            try {
+                response = hedged(operation, request);
+            } catch (Exception e) {
+                // RestAssured throws connection errors (IOException) undeclared
+                error = e;
+            }
+            if (error == null && !isRetryable(response)) return response;
+            if (attempt >= maxAttempts || !retryBudget.tryWithdraw()) {
+                if (error != null) throw rethrow(error);
+                return response;
+            }
+            sleep(backoffMillis(attempt));
+        }
+    }
+
+    public long getHedgesFired() {
+        return hedgesFired.sum();
+    }
+
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    @Override
+    public String toString() {
+        return "hedges fired " + getHedgesFired() + ", won " + getHedgesWon()
+                + "; retries spent " + retryBudget.getSpent() + ", refused by the budget " + retryBudget.getRejected();
+    }
+
+    private Response hedged(String operation, Supplier<Response> request) {
+        long delayMillis = hedgeDelayMillis(operation);
+        if (delayMillis <= 0) return request.get();
+
+        // both attempts run on the pool, so that the caller can take whichever response comes first
+        String scope = metrics.currentScope();
+        ExecutorService executor = executor();
+        ConcurrencyLimiter.SlotWait primaryWait = new ConcurrencyLimiter.SlotWait();
+        CompletableFuture<Attempt> primary = CompletableFuture.supplyAsync(() -> Attempt.run(metrics, scope, request, primaryWait), executor);
+        Attempt winner;
+        try {
+            winner = withinHedgeDelay(primary, primaryWait, delayMillis);
+            if (winner == null) {
+                hedgesFired.increment();
+                CompletableFuture<Attempt> hedge = CompletableFuture.supplyAsync(() -> Attempt.run(metrics, scope, request, null), executor);
+                winner = await(firstSuccessful(primary, hedge));
+                if (hedge.isDone() && !hedge.isCompletedExceptionally() && hedge.join() == winner) hedgesWon.increment();
+            }
+        } catch (ExecutionException e) {
+            // failed before the hedge delay, rethrown by await
+            winner = await(primary);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a response", e);
+        }
+        // the caller's request log gets the exchange it was answered with
+        RequestLog.addAll(winner.exchanges);
+        return winner.response;
+    }
+
+    // The primary attempt when it completes within the delay after it got its slot, null when it doesn't
+    private static Attempt withinHedgeDelay(CompletableFuture<Attempt> primary, ConcurrencyLimiter.SlotWait wait,
+                                            long delayMillis) throws ExecutionException, InterruptedException {
+        long submitted = System.nanoTime();
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        while (true) {
+            if (wait.isQueued()) {
+                CompletableFuture.anyOf(wait.whenDequeued(), primary).get();
+                continue;
+            }
+            long remaining = wait.dequeuedAt(submitted) + delayNanos - System.nanoTime();
+            try {
+                return primary.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // queued meanwhile, or got its slot later than the delay assumed
+                if (!wait.isQueued() && wait.dequeuedAt(submitted) + delayNanos - System.nanoTime() <= 0) return null;
+            }
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executorLock.lock();
+            try {
+                if (executor == null) executor = BookingExecutors.newExecutor("booker-hedge");
+            } finally {
+                executorLock.unlock();
+            }
+        }
+        return executor;
+    }
+
+    private long hedgeDelayMillis(String operation) {
+        if (hedgePercentile <= 0) return 0;
+        OperationStats stats = metrics.operations().get(operation);
+        if (stats == null || stats.getCount() < minHedgeSamples) return 0;
+        return Math.max(minHedgeDelayMillis, (long) Math.ceil(stats.getPercentileMillis(hedgePercentile)));
+    }
+
+    // Full jitter: a random wait up to the exponential backoff, so that retrying clients don't come back together
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, backoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private static boolean isRetryable(Response response) {
+        int status = response.getStatusCode();
+        return status == 429 || status >= 500;
+    }
+
+    // Completes with the first attempt that succeeds, or with the error of the last one when both fail
+    private static CompletableFuture<Attempt> firstSuccessful(CompletableFuture<Attempt> first, CompletableFuture<Attempt> second) {
+        CompletableFuture<Attempt> result = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (CompletableFuture<Attempt> attempt : List.of(first, second)) {
+            attempt.whenComplete((value, error) -> {
+                if (error == null) result.complete(value);
+                else if (failed.incrementAndGet() == 2) result.completeExceptionally(error);
+            });
+        }
+        return result;
+    }
+
+    private static Attempt await(CompletableFuture<Attempt> attempt) {
+        try {
+            return attempt.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a response", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            throw rethrow(cause);
+        }
+    }
+
+    // Throws the exception as it is, checked or not, so that callers see the same errors as without this class
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> RuntimeException rethrow(Throwable error) throws E {
+        throw (E) error;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+
+    // A request sent from a pool thread, with the metrics scope of the caller and the exchanges it logged there
+    private static final class Attempt {
+        final Response response;
+        final RequestLog.Exchange[] exchanges;
+
+        private Attempt(Response response, RequestLog.Exchange[] exchanges) {
+            this.response = response;
+            this.exchanges = exchanges;
+        }
+
+        // `wait` learns when the request waits for a slot of the ConcurrencyLimiter, null when nobody needs to know
+        static Attempt run(MetricsRegistry metrics, String scope, Supplier<Response> request, ConcurrencyLimiter.SlotWait wait) {
+            String previous = scope == null ? null : metrics.enterScope(scope);
+            RequestLog.clear();
+            try {
+                Response response = wait == null ? request.get() : ConcurrencyLimiter.reportingWaits(wait, request);
+                return new Attempt(response, RequestLog.take());
+            } catch (Throwable e) {
+                RequestLog.clear();
+                throw e;
+            } finally {
+                if (scope != null) metrics.exitScope(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.hotelbooking.api.client;
+
+import io.restassured.response.Response;
+
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Recent request/response exchanges of the current thread, kept in a bounded ring and formatted only when dumped.
+// booker.log.mode = all logs every exchange as it happens (RestAssured logging),
+// failures keeps them here and prints them only when a test or a response assertion fails.
+public final class RequestLog {
+
+    private static final boolean LOG_ALL = "all".equalsIgnoreCase(loadProperty("booker.log.mode", "failures"));
+    private static final int CAPACITY = Math.max(1, loadIntProperty("booker.log.buffer.size", 32));
+    // share of successful exchanges printed right away in the failures mode, e.g. 0.01
+    private static final double SAMPLE_RATE = Double.parseDouble(loadProperty("booker.log.sample.rate", "0"));
+
+    private static final ThreadLocal<Exchange[]> RING = ThreadLocal.withInitial(() -> new Exchange[CAPACITY]);
+    private static final ThreadLocal<long[]> RECORDED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private RequestLog() {
+    }
+
+    public static boolean isLogAll() {
+        return LOG_ALL;
+    }
+
+    // Only references are stored, the text is built in dump()
+    static void record(String method, String uri, Object requestBody, Response response, long durationNanos) {
+        Exchange exchange = new Exchange(method, uri, requestBody, response, durationNanos);
+        long[] recorded = RECORDED.get();
+        RING.get()[(int) (recorded[0]++ % CAPACITY)] = exchange;
+
+        if (SAMPLE_RATE > 0 && response.getStatusCode() < 400 && ThreadLocalRandom.current().nextDouble() < SAMPLE_RATE)
+            System.out.print(format(new StringBuilder("Sampled request:\n"), exchange));
+    }
+
+    // Prints the exchanges recorded on this thread since the last dump or clear, oldest first
+    public static void dump() {
+        dump(System.out, null);
+    }
+
+    public static void dump(PrintStream out, String title) {
+        Exchange[] ring = RING.get();
+        long[] recorded = RECORDED.get();
+        long count = Math.min(recorded[0], CAPACITY);
+        if (count == 0) return;
+
+        StringBuilder text = new StringBuilder();
+        text.append("---- ");
+        if (title != null) text.append(title).append(": ");
+        text.append("last ").append(count).append(" of ").append(recorded[0])
+                .append(" requests on ").append(Thread.currentThread().getName()).append(" ----\n");
+        for (long i = recorded[0] - count; i < recorded[0]; i++) {
+            format(text, ring[(int) (i % CAPACITY)]);
+        }
+        // one write, so that dumps of parallel tests don't interleave
+        out.print(text);
+        clear();
+    }
+
+    // Removes the exchanges of this thread and returns them oldest first, to be moved to another thread by addAll
+    static Exchange[] take() {
+        Exchange[] ring = RING.get();
+        long recorded = RECORDED.get()[0];
+        int count = (int) Math.min(recorded, CAPACITY);
+        Exchange[] exchanges = new Exchange[count];
+        for (int i = 0; i < count; i++) {
+            exchanges[i] = ring[(int) ((recorded - count + i) % CAPACITY)];
+        }
+        clear();
+        return exchanges;
+    }
+
+    static void addAll(Exchange[] exchanges) {
+        Exchange[] ring = RING.get();
+        long[] recorded = RECORDED.get();
+        for (Exchange exchange : exchanges) {
+            ring[(int) (recorded[0]++ % CAPACITY)] = exchange;
+        }
+    }
+
+    public static void clear() {
+        Arrays.fill(RING.get(), null);
+        RECORDED.get()[0] = 0;
+    }
+
+    private static StringBuilder format(StringBuilder text, Exchange exchange) {
+        text.append(exchange.method).append(' ').append(exchange.uri)
+                .append(" (").append(TimeUnit.NANOSECONDS.toMillis(exchange.durationNanos)).append(" ms)\n");
+        if (exchange.requestBody != null)
+            text.append("Request body: ").append(bodyText(exchange.requestBody)).append('\n');
+        text.append("Response: ").append(exchange.response.getStatusLine()).append('\n');
+        String body = exchange.response.asString();
+        if (body != null && !body.isEmpty())
+            text.append("Response body: ").append(body).append('\n');
+        return text;
+    }
+
+    private static String bodyText(Object body) {
+        return body instanceof byte[] ? new String((byte[]) body, StandardCharsets.UTF_8) : String.valueOf(body);
+    }
+
+    static final class Exchange {
+        final String method;
+        final String uri;
+        final Object requestBody;
+        final Response response;
+        final long durationNanos;
+
+        Exchange(String method, String uri, Object requestBody, Response response, long durationNanos) {
+            this.method = method;
+            this.uri = uri;
+            this.requestBody = requestBody;
+            this.response = response;
+            this.durationNanos = durationNanos;
+        }
+    }
+}
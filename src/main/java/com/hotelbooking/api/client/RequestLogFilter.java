@@ -0,0 +1,22 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.metrics.BookingOperationEvent;
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+// Hands every exchange to the RequestLog ring of the calling thread instead of printing it
+public class RequestLogFilter implements Filter {
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        long start = System.nanoTime();
+        Response response = ctx.next(requestSpec, responseSpec);
+        long received = System.nanoTime();
+        RequestLog.record(requestSpec.getMethod(), requestSpec.getURI(), requestSpec.getBody(), response, received - start);
+        BookingOperationEvent.addLogging(System.nanoTime() - received);
+        return response;
+    }
+}
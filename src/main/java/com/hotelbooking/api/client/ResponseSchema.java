@@ -0,0 +1,125 @@
+package com.hotelbooking.api.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fge.jsonschema.core.exceptions.ProcessingException;
+import com.github.fge.jsonschema.core.report.ProcessingMessage;
+import com.github.fge.jsonschema.core.report.ProcessingReport;
+import com.github.fge.jsonschema.main.JsonSchema;
+import com.github.fge.jsonschema.main.JsonSchemaFactory;
+import io.restassured.response.Response;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Contracts of the booker responses, the JSON schemas in src/main/resources/schemas.
+// Each schema is loaded and compiled once per JVM, when the enum is initialized. A body is parsed once and
+// checked with the compiled schema's validInstance, which stops at the first error; the full report is built only
+// when that fails.
+public enum ResponseSchema {
+    AUTH("auth.json"),
+    CREATED_BOOKING("created-booking.json"),
+    BOOKING("booking.json"),
+    // the /booking list, validated in chunks while it's read, see BookingIdReader
+    BOOKING_IDS("booking-ids.json");
+
+    private static final boolean ENABLED = Boolean.parseBoolean(loadProperty("booker.schema.validation", "true"));
+
+    private final String file;
+    private final JsonSchema schema;
+
+    ResponseSchema(String file) {
+        this.file = file;
+        try {
+            // relative $refs, e.g. booking.json in created-booking.json, are resolved on the classpath as well
+            this.schema = Compiler.FACTORY.getJsonSchema("resource:/schemas/" + file);
+        } catch (ProcessingException e) {
+            throw new IllegalStateException("Cannot load the schema " + file, e);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // The body as `type`, validated first when validation is on. Other responses than 200 are error bodies,
+    // they are mapped as before and fail there.
+    public <T> T read(Response response, Class<T> type) {
+        if (!ENABLED || response.getStatusCode() != 200) return response.as(type);
+        return map(parse(response.asByteArray()), type);
+    }
+
+    public <T> T read(String json, Class<T> type) {
+        JsonNode body = parse(json.getBytes(StandardCharsets.UTF_8));
+        return map(body, type);
+    }
+
+    public void validate(Response response) {
+        if (ENABLED && response.getStatusCode() == 200) parse(response.asByteArray());
+    }
+
+    public void validate(JsonNode instance) {
+        try {
+            if (schema.validInstance(instance)) return;
+            ProcessingReport report = schema.validate(instance, true);
+            if (report.isSuccess()) return;
+            StringBuilder errors = new StringBuilder();
+            for (ProcessingMessage message : report) {
+                errors.append(System.lineSeparator()).append("  ")
+                        .append(message.asJson().path("instance").path("pointer").asText()).append(": ")
+                        .append(message.getMessage());
+            }
+            String text = instance.toString();
+            if (text.length() > 1000) text = text.substring(0, 1000) + "...";
+            throw violation("doesn't match " + file + ":" + errors + System.lineSeparator() + "  in " + text);
+        } catch (ProcessingException e) {
+            throw new IllegalStateException("Cannot validate against " + file, e);
+        }
+    }
+
+    // A /booking body, chunk by chunk, without a tree of the whole list
+    public static void validateBookingIds(Response response) {
+        if (!ENABLED || response.getStatusCode() != 200) return;
+        try (IntStream ids = BookingIdReader.stream(new ByteArrayInputStream(response.asByteArray()), true)) {
+            ids.forEach(id -> { });
+        }
+    }
+
+    // The body as a tree, validated when validation is on
+    private JsonNode parse(byte[] body) {
+        JsonNode tree;
+        try {
+            tree = Compiler.MAPPER.readTree(body);
+        } catch (IOException e) {
+            throw violation("is not JSON: " + e.getMessage());
+        }
+        if (ENABLED) validate(tree);
+        return tree;
+    }
+
+    private static <T> T map(JsonNode body, Class<T> type) {
+        try {
+            return Compiler.MAPPER.treeToValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static SchemaViolationException violation(String message) {
+        // printed like the failed assertions of ResponseAssertionUtils, with the exchanges that led here
+        RequestLog.dump();
+        return new SchemaViolationException("Response " + message);
+    }
+
+    // Shared by all schemas, enum constants can't read static fields of their own class in the constructor
+    private static final class Compiler {
+        static final JsonSchemaFactory FACTORY = JsonSchemaFactory.byDefault();
+        static final ObjectMapper MAPPER = new ObjectMapper();
+    }
+}
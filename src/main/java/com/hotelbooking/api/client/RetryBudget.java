@@ -0,0 +1,55 @@
+package com.hotelbooking.api.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Retries allowed across all callers: every call deposits `ratio` of a retry, every retry withdraws a whole one,
+// and at most `maxRetries` can be saved up. When the host is down the retries stop after the saved ones are spent,
+// instead of multiplying the load by the number of attempts.
+public class RetryBudget {
+
+    // in thousandths of a retry, so the ratio doesn't need floating point arithmetic
+    private static final long UNIT = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+    private final LongAdder spent = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public RetryBudget(double ratio, int maxRetries) {
+        this.deposit = Math.round(ratio * UNIT);
+        this.capacity = maxRetries * UNIT;
+        this.balance = new AtomicLong(capacity);
+    }
+
+    public void deposit() {
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(capacity, current + amount));
+    }
+
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNIT) {
+                rejected.increment();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                spent.increment();
+                return true;
+            }
+        }
+    }
+
+    public double getAvailable() {
+        return balance.get() / (double) UNIT;
+    }
+
+    public long getSpent() {
+        return spent.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,10 @@
+package com.hotelbooking.api.client;
+
+// A response body that isn't JSON or doesn't match its ResponseSchema; unchecked like the other failed calls of the
+// clients, so the load and stress runners count it as a failure instead of dying on an Error
+public class SchemaViolationException extends RuntimeException {
+
+    public SchemaViolationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,195 @@
+package com.hotelbooking.api.fixtures;
+
+import com.hotelbooking.api.client.AuthTokenManager;
+import com.hotelbooking.api.client.BookingExecutors;
+import com.hotelbooking.api.client.BookingClient;
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Keeps a number of bookings created ahead of demand and deletes released bookings in the background.
+// Tests get a booking without waiting for a create call and don't wait for the delete call after them.
+// Each cleaner thread takes the released ids off the queue in batches of up to CLEANUP_BATCH and deletes them in turn.
+public class BookingFixturePool implements AutoCloseable {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+    // ids a cleaner takes off the queue at a time
+    private static final int CLEANUP_BATCH = 16;
+
+    private final BookingClient client;
+    private final AuthTokenManager tokenManager;
+    private final Supplier<Booking> generator;
+    private final int capacity;
+
+    private final BlockingQueue<CreatedBooking> ready = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Integer> deletions = new LinkedBlockingQueue<>();
+    // bookings created by the pool and not deleted yet
+    private final Set<Integer> live = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger provisioning = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    // set by close() once the unused bookings are queued, the cleaners stop when the queue is empty then
+    private volatile boolean draining;
+
+    private final ExecutorService provisioner;
+    private final ExecutorService cleaner;
+    private final Thread shutdownHook;
+
+    public BookingFixturePool(BookingClient client, AuthTokenManager tokenManager, Supplier<Booking> generator,
+                              int capacity, int cleanupThreads) {
+        this.client = client;
+        this.tokenManager = tokenManager;
+        this.generator = generator;
+        this.capacity = capacity;
+        // at most `capacity` creations are submitted at a time, see refill
+        this.provisioner = BookingExecutors.newFixedExecutor("fixture-provisioner", Math.max(1, capacity / 2));
+        // platform threads in every mode, the number of threads is what limits the concurrent deletions
+        this.cleaner = Executors.newFixedThreadPool(cleanupThreads, daemonThreads("fixture-cleaner"));
+        for (int i = 0; i < cleanupThreads; i++) {
+            cleaner.execute(this::deleteReleased);
+        }
+        // fallback for runs that don't close the pool themselves, removed by close()
+        this.shutdownHook = new Thread(this::close, "fixture-pool-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        refill();
+    }
+
+    // Takes a pre-created booking, or creates one in place when the pool hasn't caught up yet
+    public CreatedBooking acquire() {
+        CreatedBooking booking = ready.poll();
+        if (booking == null)
+            booking = create();
+        refill();
+        return booking;
+    }
+
+    // Queues the booking for deletion, the call returns immediately
+    public void release(int bookingId) {
+        live.add(bookingId);
+        deletions.add(bookingId);
+    }
+
+    public int getReadyCount() {
+        return ready.size();
+    }
+
+    public int getPendingDeletions() {
+        return deletions.size();
+    }
+
+    // Deletes unused and released bookings, fails with the ids of the ones that couldn't be deleted
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                // a closed pool shouldn't stay reachable from the Runtime until the JVM exits
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // the JVM is shutting down already
+            }
+        }
+
+        awaitTermination(provisioner);
+        List<CreatedBooking> unused = new ArrayList<>();
+        ready.drainTo(unused);
+        unused.forEach(booking -> release(booking.getBookingid()));
+        draining = true;
+        awaitTermination(cleaner);
+
+        if (!live.isEmpty())
+            throw new IllegalStateException(live.size() + " fixture bookings were not deleted: " + live);
+    }
+
+    private void refill() {
+        while (!closed.get()) {
+            int inFlight = provisioning.get();
+            if (ready.size() + inFlight >= capacity) return;
+            if (provisioning.compareAndSet(inFlight, inFlight + 1)) {
+                try {
+                    provisioner.execute(this::provisionOne);
+                } catch (RejectedExecutionException e) {
+                    // the pool is being closed
+                    provisioning.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void provisionOne() {
+        try {
+            ready.add(create());
+        } catch (RuntimeException e) {
+            // acquire() falls back to a synchronous create, the next call tries to refill again
+        } finally {
+            provisioning.decrementAndGet();
+        }
+    }
+
+    private CreatedBooking create() {
+        CreatedBooking booking = client.createBooking(generator.get(), tokenManager.getToken());
+        live.add(booking.getBookingid());
+        return booking;
+    }
+
+    // One cleaner thread: deletes released ids a batch at a time until the pool is closed and the queue is empty
+    private void deleteReleased() {
+        List<Integer> batch = new ArrayList<>(CLEANUP_BATCH);
+        while (!(draining && deletions.isEmpty())) {
+            Integer first;
+            try {
+                first = deletions.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (first == null) continue;
+            batch.add(first);
+            deletions.drainTo(batch, CLEANUP_BATCH - 1);
+            batch.forEach(this::delete);
+            batch.clear();
+        }
+    }
+
+    private void delete(int id) {
+        try {
+            int status = tokenManager.withToken(token -> client.deleteBooking(id, token)).getStatusCode();
+            // 405 means the test has already deleted the booking itself
+            if (status == 201 || status == 404 || status == 405)
+                live.remove(id);
+        } catch (RuntimeException e) {
+            // stays in the live set and is reported on close
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
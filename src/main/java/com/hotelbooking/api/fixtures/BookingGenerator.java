@@ -0,0 +1,183 @@
+package com.hotelbooking.api.fixtures;
+
+import com.github.javafaker.Faker;
+import com.hotelbooking.api.model.Booking;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static com.hotelbooking.api.utils.DateUtils.formatBookingDate;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Test bookings drawn from pools that are built once, instead of a Faker (and its locale data) per booking.
+// The n-th booking of a generator depends only on the seed and n, so a run is reproducible with booker.data.seed
+// no matter how many threads share the generator.
+public class BookingGenerator {
+
+    private static final int NAME_POOL_SIZE = 1024;
+    private static final int CHECKIN_DAYS = 365;
+    private static final int MAX_NIGHTS = 14;
+
+    // Faker is only used here, seeded so that the pools are the same in every run
+    private static final String[] FIRST_NAMES;
+    private static final String[] LAST_NAMES;
+    static {
+        Faker faker = new Faker(new Random(42));
+        FIRST_NAMES = new String[NAME_POOL_SIZE];
+        LAST_NAMES = new String[NAME_POOL_SIZE];
+        for (int i = 0; i < NAME_POOL_SIZE; i++) {
+            FIRST_NAMES[i] = faker.name().firstName();
+            LAST_NAMES[i] = faker.name().lastName();
+        }
+    }
+    private static final String[] ADDITIONAL_NEEDS = {
+            "Breakfast", "Lunch", "Dinner", "All Inclusive", "Late checkout", "Parking", "Extra bed", "Sea view"};
+
+    // The edge cases of the contract tests, by family. Non-ASCII text is escaped, the build doesn't set a source encoding
+    private static final String[][] UNICODE_NAMES = {
+            {"\u6709\u9322", "\u4EBA", "\u5305\u7F85\u842C\u8C61"}, // CJK ideographs
+            {"Zo\u00EB", "M\u00FCller-L\u00FCdenscheidt", "Fr\u00FChst\u00FCck"}, // Latin-1
+            {"\u0141ukasz", "\u017B\u00F3\u0142\u0107", "\u015Aniadanie"}, // Latin Extended
+            {"\u0410\u043D\u043D\u0430", "\u041A\u0430\u0440\u0435\u043D\u0438\u043D\u0430", "\u0417\u0430\u0432\u0442\u0440\u0430\u043A"}, // Cyrillic
+            {"\uD83D\uDE00", "\uD83C\uDFE8", "\uD83D\uDECF\uFE0F"}}; // outside the BMP
+    private static final String[][] SPECIAL_NAMES = {
+            {"Konstant's", "Johnson&Johnson", "bed&breakfast"}, {"Anna Maria", " Santa Lucia", "    All Inclusive    "},
+            {"<b>", "\"quoted\"", "back\\slash"}, {"Robert'); --", "O'Neil", "100% {json}"}};
+    private static final String[] INVALID_DATES = {
+            null, "", "2018/01/01T12:12:12", "01-01-2018", "2018-13-01", "2018-02-30", "not a date"};
+    private static final int[] BOUNDARY_PRICES = {0, -100, 1, 99999, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+    private static final ReentrantLock SHARED_LOCK = new ReentrantLock();
+    private static volatile BookingGenerator shared;
+
+    private final long seed;
+    private final AtomicLong sequence = new AtomicLong();
+    // formatted dates from today on, so that no date is formatted per booking
+    private final String[] dates;
+
+    public BookingGenerator(long seed) {
+        this(seed, LocalDate.now());
+    }
+
+    public BookingGenerator(long seed, LocalDate today) {
+        this.seed = seed;
+        this.dates = new String[CHECKIN_DAYS + MAX_NIGHTS + 1];
+        for (int day = 0; day < dates.length; day++) {
+            dates[day] = formatBookingDate(today.plusDays(day));
+        }
+    }
+
+    // The generator of this JVM, seeded with booker.data.seed or randomly when it isn't set
+    public static BookingGenerator shared() {
+        if (shared == null) {
+            SHARED_LOCK.lock();
+            try {
+                if (shared == null) {
+                    String seed = loadProperty("booker.data.seed", "");
+                    shared = new BookingGenerator(seed.isEmpty() ? System.nanoTime() : Long.parseLong(seed));
+                    // printed so that a failing run can be repeated with the same data
+                    if (seed.isEmpty()) System.out.println("Generated bookings use -Dbooker.data.seed=" + shared.seed);
+                }
+            } finally {
+                SHARED_LOCK.unlock();
+            }
+        }
+        return shared;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Booking next() {
+        return booking(sequence.getAndIncrement());
+    }
+
+    public List<Booking> next(int count) {
+        long first = sequence.getAndAdd(count);
+        List<Booking> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            bookings.add(booking(first + i));
+        }
+        return bookings;
+    }
+
+    // A range of the sequence is reserved up front, the stream may be consumed in parallel
+    public Stream<Booking> stream(long count) {
+        long first = sequence.getAndAdd(count);
+        return LongStream.range(first, first + count).mapToObj(this::booking);
+    }
+
+    public Booking booking(long index) {
+        long random = mix(seed + index * 0x9E3779B97F4A7C15L);
+        int checkin = (int) Long.remainderUnsigned(random, CHECKIN_DAYS);
+        random = mix(random);
+        int nights = 1 + (int) Long.remainderUnsigned(random, MAX_NIGHTS);
+        random = mix(random);
+        return Booking.builder()
+                .firstname(FIRST_NAMES[(int) (random & (NAME_POOL_SIZE - 1))])
+                .lastname(LAST_NAMES[(int) ((random >>> 10) & (NAME_POOL_SIZE - 1))])
+                .totalprice(1 + (int) Long.remainderUnsigned(random >>> 20, 999))
+                .depositpaid(((random >>> 40) & 1) == 0)
+                .bookingdates(Booking.BookingDates.builder()
+                        .checkin(dates[checkin])
+                        .checkout(dates[checkin + nights])
+                        .build())
+                .additionalneeds(ADDITIONAL_NEEDS[(int) Long.remainderUnsigned(random >>> 44, ADDITIONAL_NEEDS.length)])
+                .build();
+    }
+
+    // A regular booking with the values of one edge-case family
+    public Booking next(EdgeCase edgeCase) {
+        long index = sequence.getAndIncrement();
+        Booking booking = booking(index);
+        int variant = (int) Long.remainderUnsigned(mix(seed ^ index), Integer.MAX_VALUE);
+        switch (edgeCase) {
+            case UNICODE:
+                return withNames(booking, UNICODE_NAMES[variant % UNICODE_NAMES.length]);
+            case SPECIAL_CHARACTERS:
+                return withNames(booking, SPECIAL_NAMES[variant % SPECIAL_NAMES.length]);
+            case EMPTY_STRINGS:
+                return withNames(booking, new String[]{"", "", ""});
+            case LONG_STRINGS:
+                int repeat = 200 + variant % 800;
+                return withNames(booking, new String[]{"John".repeat(repeat), "Smith".repeat(repeat), "Breakfast".repeat(repeat)});
+            case PRICE_BOUNDARIES:
+                return booking.toBuilder().totalprice(BOUNDARY_PRICES[variant % BOUNDARY_PRICES.length]).build();
+            case INVALID_DATES:
+                String invalid = INVALID_DATES[variant % INVALID_DATES.length];
+                Booking.BookingDates dates = variant % 2 == 0
+                        ? booking.getBookingdates().toBuilder().checkin(invalid).build()
+                        : booking.getBookingdates().toBuilder().checkout(invalid).build();
+                return booking.toBuilder().bookingdates(dates).build();
+            case CHECKOUT_BEFORE_CHECKIN:
+                return booking.toBuilder().bookingdates(Booking.BookingDates.builder()
+                        .checkin(booking.getBookingdates().getCheckout())
+                        .checkout(booking.getBookingdates().getCheckin())
+                        .build()).build();
+            default:
+                throw new IllegalArgumentException("Unknown edge case " + edgeCase);
+        }
+    }
+
+    private static Booking withNames(Booking booking, String[] values) {
+        return booking.toBuilder().firstname(values[0]).lastname(values[1]).additionalneeds(values[2]).build();
+    }
+
+    // SplitMix64 finalizer, spreads consecutive indexes over all bits
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    public enum EdgeCase {
+        UNICODE, SPECIAL_CHARACTERS, EMPTY_STRINGS, LONG_STRINGS, PRICE_BOUNDARIES, INVALID_DATES, CHECKOUT_BEFORE_CHECKIN
+    }
+}
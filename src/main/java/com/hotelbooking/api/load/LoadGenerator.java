@@ -0,0 +1,242 @@
+package com.hotelbooking.api.load;
+
+import com.hotelbooking.api.client.AsyncBookingClient;
+import com.hotelbooking.api.client.ConcurrencyLimiter;
+import com.hotelbooking.api.fixtures.BookingGenerator;
+import com.hotelbooking.api.model.Auth;
+import com.hotelbooking.api.model.Booking;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.hotelbooking.api.utils.DateUtils.bookingDateFormat;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Drives a mix of booking operations against the target host and reports latency percentiles per operation.
+// Open model: requests start at fixed intervals and latency is measured from the intended start time,
+// so a slow service can't hold back the load (no coordinated omission). Closed model: a fixed number of users.
+public class LoadGenerator {
+
+    private final LoadSettings settings;
+    private final LoadMix mix;
+    private final AsyncBookingClient client;
+    private final LoadReport report = new LoadReport();
+    private final BookingIds bookingIds = new BookingIds();
+    private String token;
+
+    public LoadGenerator(LoadSettings settings) {
+        this.settings = settings;
+        this.mix = LoadMix.parse(settings.getMix());
+        this.client = settings.getBaseUrl() == null
+                ? new AsyncBookingClient(settings.getConcurrency())
+                : new AsyncBookingClient(settings.getBaseUrl(), settings.getConcurrency());
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadSettings settings = LoadSettings.fromProperties();
+        LoadReport report = new LoadGenerator(settings).run();
+        report.write(System.out, settings);
+        report.write(settings.getReportFile(), settings);
+        // the in-flight limit the host sustained, see booker.limiter.*
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.shared();
+        if (limiter != null) System.out.println("Concurrency limiter: " + limiter);
+        System.out.println("Report written to " + settings.getReportFile());
+        System.exit(0);
+    }
+
+    public LoadReport run() {
+        token = client.authenticateUser(new Auth(loadProperty("admin.user"), loadProperty("admin.password"), null))
+                .join().getToken();
+        prepareBookings();
+
+        long start = System.nanoTime();
+        long warmupEnd = start + settings.getWarmup().toNanos();
+        long end = warmupEnd + settings.getDuration().toNanos();
+        if (!settings.getWarmup().isZero()) {
+            // results of the warm-up are dropped
+            Thread warmup = new Thread(() -> {
+                sleepUntil(warmupEnd);
+                report.reset();
+            }, "load-warmup");
+            warmup.setDaemon(true);
+            warmup.start();
+        }
+
+        if (settings.getModel() == LoadSettings.Model.OPEN)
+            runOpen(start, end);
+        else
+            runClosed(end);
+        report.finish();
+        deleteBookings();
+        return report;
+    }
+
+    private void prepareBookings() {
+        List<CompletableFuture<Void>> created = new ArrayList<>();
+        for (int i = 0; i < settings.getInitialBookings(); i++) {
+            created.add(client.createBooking(BookingGenerator.shared().next(), token)
+                    .thenAccept(booking -> bookingIds.add(booking.getBookingid())));
+        }
+        CompletableFuture.allOf(created.toArray(new CompletableFuture[0])).join();
+    }
+
+    // The bookings the run created and didn't delete, after the report so that it doesn't count these calls
+    private void deleteBookings() {
+        int[] remaining = bookingIds.takeAll();
+        List<CompletableFuture<Boolean>> deleted = new ArrayList<>();
+        for (int id : remaining) {
+            deleted.add(client.deleteBooking(id, token).handle((response, error) -> error == null && response.statusCode() == 201));
+        }
+        long failed = deleted.stream().filter(result -> !result.join()).count();
+        if (failed > 0)
+            System.out.println("WARNING: " + failed + " of " + remaining.length + " bookings of the load run were not deleted");
+    }
+
+    private void runOpen(long start, long end) {
+        // at most one request per nanosecond
+        long interval = Math.max(1, TimeUnit.SECONDS.toNanos(1) / settings.getRate());
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (long intended = start; intended < end; intended += interval) {
+            sleepUntil(intended);
+            pending.add(execute(mix.next(), intended));
+            if (pending.size() >= 10_000) pending.removeIf(CompletableFuture::isDone);
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+    }
+
+    private void runClosed(long end) {
+        CountDownLatch users = new CountDownLatch(settings.getConcurrency());
+        for (int i = 0; i < settings.getConcurrency(); i++) {
+            nextRequest(end, users);
+        }
+        try {
+            users.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A user sends the next request as soon as the previous one is answered
+    private void nextRequest(long end, CountDownLatch users) {
+        if (System.nanoTime() >= end) {
+            users.countDown();
+            return;
+        }
+        // async, so that calls failing right away don't grow the stack
+        execute(mix.next(), System.nanoTime()).whenCompleteAsync((ignored, error) -> nextRequest(end, users));
+    }
+
+    private CompletableFuture<Void> execute(LoadMix.Operation requested, long intendedStart) {
+        Integer id = requested == LoadMix.Operation.CREATE || requested == LoadMix.Operation.LIST
+                ? null
+                : (requested == LoadMix.Operation.DELETE ? bookingIds.take() : bookingIds.random());
+        // without bookings to work on every operation turns into a create
+        LoadMix.Operation operation = id == null && requested != LoadMix.Operation.LIST ? LoadMix.Operation.CREATE : requested;
+
+        CompletableFuture<Integer> call;
+        try {
+            call = call(operation, id);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.handle((status, error) -> {
+            report.record(operation, System.nanoTime() - intendedStart, error == null && status < 400);
+            return null;
+        });
+    }
+
+    private CompletableFuture<Integer> call(LoadMix.Operation operation, Integer id) {
+        switch (operation) {
+            case CREATE:
+                return client.createBooking(BookingGenerator.shared().next(), token).thenApply(created -> {
+                    bookingIds.add(created.getBookingid());
+                    return 200;
+                });
+            case GET:
+                return client.getBookingById(id).thenApply(booking -> 200);
+            case LIST:
+                return client.getBookingIds(listFilters()).thenApply(response -> response.statusCode());
+            case PATCH:
+                Booking patch = Booking.builder().totalprice(ThreadLocalRandom.current().nextInt(1, 1000)).build();
+                return client.partialUpdateBookingJson(patch, id, token).thenApply(response -> response.statusCode());
+            case DELETE:
+                return client.deleteBooking(id, token).thenApply(response -> response.statusCode());
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    private static Map<String, Object> listFilters() {
+        Map<String, Object> filters = new HashMap<>();
+        filters.put("checkin", bookingDateFormat().format(LocalDate.now().minusDays(1)));
+        return filters;
+    }
+
+    private static void sleepUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    // Ids of the bookings created by the run, with random access for get/patch and removal for delete
+    private static class BookingIds {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int[] ids = new int[1024];
+        private int size;
+
+        void add(int id) {
+            lock.lock();
+            try {
+                if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+                ids[size++] = id;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Integer random() {
+            lock.lock();
+            try {
+                return size == 0 ? null : ids[ThreadLocalRandom.current().nextInt(size)];
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int[] takeAll() {
+            lock.lock();
+            try {
+                int[] all = Arrays.copyOf(ids, size);
+                size = 0;
+                return all;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Integer take() {
+            lock.lock();
+            try {
+                if (size == 0) return null;
+                int index = ThreadLocalRandom.current().nextInt(size);
+                int id = ids[index];
+                ids[index] = ids[--size];
+                return id;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.hotelbooking.api.load;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Picks operations at random according to their weights
+public class LoadMix {
+
+    public enum Operation { CREATE, GET, LIST, PATCH, DELETE }
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    public LoadMix(Map<Operation, Integer> weights) {
+        operations = new Operation[weights.size()];
+        cumulativeWeights = new int[weights.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            total += entry.getValue();
+            operations[i] = entry.getKey();
+            cumulativeWeights[i++] = total;
+        }
+        if (total <= 0)
+            throw new IllegalArgumentException("Load mix has no operations with a positive weight: " + weights);
+        totalWeight = total;
+    }
+
+    // Parses "create:20,get:40,..." into a mix
+    public static LoadMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2)
+                throw new IllegalArgumentException("Expected operation:weight but was '" + part + "'");
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return new LoadMix(weights);
+    }
+
+    public Operation next() {
+        int point = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (point < cumulativeWeights[i]) return operations[i];
+        }
+        return operations[operations.length - 1];
+    }
+}
@@ -0,0 +1,100 @@
+package com.hotelbooking.api.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histograms (microseconds) and error counters per operation
+public class LoadReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Map<LoadMix.Operation, Histogram> latencies = new EnumMap<>(LoadMix.Operation.class);
+    private final Map<LoadMix.Operation, LongAdder> errors = new EnumMap<>(LoadMix.Operation.class);
+    private volatile long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    public LoadReport() {
+        for (LoadMix.Operation operation : LoadMix.Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(1, HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public void record(LoadMix.Operation operation, long latencyNanos, boolean success) {
+        long micros = Math.min(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)), HIGHEST_TRACKABLE_MICROS);
+        latencies.get(operation).recordValue(micros);
+        if (!success) errors.get(operation).increment();
+    }
+
+    // Drops everything recorded so far, called when the warm-up is over
+    public void reset() {
+        latencies.values().forEach(Histogram::reset);
+        errors.values().forEach(LongAdder::reset);
+        startNanos = System.nanoTime();
+    }
+
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public Histogram getLatencies(LoadMix.Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public long getErrors(LoadMix.Operation operation) {
+        return errors.get(operation).sum();
+    }
+
+    public void write(String file, LoadSettings settings) throws IOException {
+        Path path = Paths.get(file);
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(path), false, StandardCharsets.UTF_8)) {
+            write(out, settings);
+        }
+    }
+
+    public void write(PrintStream out, LoadSettings settings) {
+        double seconds = (endNanos - startNanos) / 1e9;
+        out.printf("Model: %s, rate: %d/s, concurrency: %d, mix: %s, measured: %.1f s%n",
+                settings.getModel(), settings.getRate(), settings.getConcurrency(), settings.getMix(), seconds);
+        out.printf("%-8s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (LoadMix.Operation operation : LoadMix.Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            if (histogram.getTotalCount() == 0) continue;
+            out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    operation.name().toLowerCase(),
+                    histogram.getTotalCount(),
+                    errors.get(operation).sum(),
+                    histogram.getTotalCount() / seconds,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+        // full distributions, can be plotted with the HdrHistogram plotter
+        for (LoadMix.Operation operation : LoadMix.Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            if (histogram.getTotalCount() == 0) continue;
+            out.println();
+            out.println("Latency distribution (ms) of " + operation.name().toLowerCase() + ":");
+            histogram.outputPercentileDistribution(out, 5, 1000.0);
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,82 @@
+package com.hotelbooking.api.load;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadLongProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+@Getter
+public class LoadSettings {
+
+    public enum Model {
+        // requests arrive at a fixed rate regardless of how fast the service answers
+        OPEN,
+        // a fixed number of users, each sends the next request when the previous one is answered
+        CLOSED
+    }
+
+    private final Model model;
+
+    // Arrival rate per second for the open model
+    private final int rate;
+
+    // Users for the closed model, requests in flight limit for the open one
+    private final int concurrency;
+
+    private final Duration warmup;
+
+    private final Duration duration;
+
+    // Operation weights, e.g. "create:20,get:40,list:10,patch:20,delete:10"
+    private final String mix;
+
+    // Bookings created before the run so that get/patch/delete have something to work on
+    private final int initialBookings;
+
+    private final String reportFile;
+
+    // Host to load, e.g. a BookerStubServer of a test; null for the configured one (booker.host or booker.embedded)
+    private final String baseUrl;
+
+    @Builder(toBuilder = true)
+    private LoadSettings(Model model, int rate, int concurrency, Duration warmup, Duration duration, String mix,
+                         int initialBookings, String reportFile, String baseUrl) {
+        // the open model sends a request every 1/rate seconds
+        if (model == Model.OPEN && rate <= 0)
+            throw new IllegalArgumentException("The rate of the open model must be positive: " + rate);
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("Concurrency must be positive: " + concurrency);
+        if (duration == null || duration.isNegative() || duration.isZero())
+            throw new IllegalArgumentException("Duration must be positive: " + duration);
+        if (warmup == null || warmup.isNegative())
+            throw new IllegalArgumentException("Warm-up must not be negative: " + warmup);
+        if (initialBookings < 0)
+            throw new IllegalArgumentException("Initial bookings must not be negative: " + initialBookings);
+        this.model = model;
+        this.rate = rate;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mix = mix;
+        this.initialBookings = initialBookings;
+        this.reportFile = reportFile;
+        this.baseUrl = baseUrl;
+    }
+
+    public static LoadSettings fromProperties() {
+        return LoadSettings.builder()
+                .model(Model.valueOf(loadProperty("load.model", "open").toUpperCase()))
+                .rate(loadIntProperty("load.rate", 100))
+                .concurrency(loadIntProperty("load.concurrency", 64))
+                .warmup(Duration.ofSeconds(loadLongProperty("load.warmup.seconds", 5)))
+                .duration(Duration.ofSeconds(loadLongProperty("load.duration.seconds", 60)))
+                .mix(loadProperty("load.mix", "create:20,get:40,list:5,patch:25,delete:10"))
+                .initialBookings(loadIntProperty("load.initial.bookings", 100))
+                .reportFile(loadProperty("load.report", "target/load-report.txt"))
+                .build();
+    }
+}
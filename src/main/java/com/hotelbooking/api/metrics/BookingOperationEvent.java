@@ -0,0 +1,159 @@
+package com.hotelbooking.api.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// A Java Flight Recorder event per BookingClient call, written only while a recording is running (see perf/booker.jfc).
+// The call opens it on its thread, FlightRecorderFilter and the HTTP client interceptors add the phases of every
+// exchange, retries included, and the client adds the time spent in deserialization and logging.
+// Exchanges of hedged requests run on other threads and are not part of it.
+@Name("booker.BookingOperation")
+@Label("Booking API Operation")
+@Category("Booking API")
+@Description("A BookingClient call with the phases of its HTTP exchanges")
+@StackTrace(false)
+public class BookingOperationEvent extends Event {
+
+    private static final ThreadLocal<BookingOperationEvent> CURRENT = new ThreadLocal<>();
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Booking Id")
+    @Description("0 when the operation has none")
+    private int bookingId;
+
+    @Label("Status")
+    @Description("Of the last exchange, 0 when no response was received")
+    private int status;
+
+    @Label("Exchanges")
+    private int exchanges;
+
+    @Label("Request Size")
+    @DataAmount
+    private long requestBytes;
+
+    @Label("Response Size")
+    @DataAmount
+    private long responseBytes;
+
+    @Label("Connect")
+    @Description("Until the connection was ready: DNS, TCP connect and the connection setup of the HTTP client")
+    @Timespan
+    private long connect;
+
+    @Label("Server Wait")
+    @Description("From sending the request until the response headers arrived")
+    @Timespan
+    private long serverWait;
+
+    @Label("Body Read")
+    @Timespan
+    private long bodyRead;
+
+    @Label("Deserialization")
+    @Description("Mapping the body, schema validation included")
+    @Timespan
+    private long deserialization;
+
+    @Label("Logging")
+    @Timespan
+    private long logging;
+
+    // transient fields are not part of the recorded event
+    private transient boolean attached;
+    private transient BookingOperationEvent previous;
+    private transient long exchangeStart;
+    private transient long connected;
+    private transient long headersReceived;
+
+    // Starts the event of a call on this thread, finish() has to follow in a finally block
+    public static BookingOperationEvent start(String operation, int bookingId) {
+        BookingOperationEvent event = new BookingOperationEvent();
+        if (!event.isEnabled()) return event;
+        event.operation = operation;
+        event.bookingId = bookingId;
+        event.attached = true;
+        event.previous = CURRENT.get();
+        CURRENT.set(event);
+        event.begin();
+        return event;
+    }
+
+    // For calls that return before their work is done, e.g. getBookingsByIds: the event isn't the current one of the
+    // thread and gets no phases, finish() is called once by whichever thread sees the work end
+    public static BookingOperationEvent startDetached(String operation, int bookingId) {
+        BookingOperationEvent event = new BookingOperationEvent();
+        if (!event.isEnabled()) return event;
+        event.operation = operation;
+        event.bookingId = bookingId;
+        event.begin();
+        return event;
+    }
+
+    public void finish() {
+        if (!isEnabled()) return;
+        if (attached) {
+            if (previous == null) CURRENT.remove();
+            else CURRENT.set(previous);
+        }
+        commit();
+    }
+
+    public static void addDeserialization(long nanos) {
+        BookingOperationEvent event = CURRENT.get();
+        if (event != null) event.deserialization += nanos;
+    }
+
+    public static void addLogging(long nanos) {
+        BookingOperationEvent event = CURRENT.get();
+        if (event != null) event.logging += nanos;
+    }
+
+    static void exchangeStarted() {
+        BookingOperationEvent event = CURRENT.get();
+        if (event == null) return;
+        event.exchangeStart = System.nanoTime();
+        event.connected = 0;
+        event.headersReceived = 0;
+    }
+
+    // Called by the HTTP client when the request is about to be sent on an open connection
+    static void connected() {
+        BookingOperationEvent event = CURRENT.get();
+        if (event != null && event.exchangeStart != 0) event.connected = System.nanoTime();
+    }
+
+    // Called by the HTTP client when the response headers have arrived, before the body is read
+    static void headersReceived() {
+        BookingOperationEvent event = CURRENT.get();
+        if (event != null && event.exchangeStart != 0) event.headersReceived = System.nanoTime();
+    }
+
+    static void exchangeFinished(int status, long requestBytes, long responseBytes) {
+        BookingOperationEvent event = CURRENT.get();
+        if (event == null || event.exchangeStart == 0) return;
+        long now = System.nanoTime();
+        event.exchanges++;
+        event.status = status;
+        event.requestBytes += requestBytes;
+        event.responseBytes += responseBytes;
+        if (event.connected == 0) {
+            // no HTTP client involved, e.g. replayed from a cassette, or failed while connecting
+            event.serverWait += now - event.exchangeStart;
+        } else {
+            long headers = event.headersReceived != 0 ? event.headersReceived : now;
+            event.connect += event.connected - event.exchangeStart;
+            event.serverWait += headers - event.connected;
+            event.bodyRead += now - headers;
+        }
+        event.exchangeStart = 0;
+    }
+}
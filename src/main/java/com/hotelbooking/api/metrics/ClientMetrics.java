@@ -0,0 +1,68 @@
+package com.hotelbooking.api.metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Per-operation statistics of all booking calls in this JVM, e.g. "PATCH /booking/{id}".
+// A thread can also set a scope (the test class), its calls are then counted for the scope as well.
+public final class ClientMetrics {
+
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("/-?\\d+(?=/|$)");
+
+    private static final MetricsRegistry RUN = new MetricsRegistry();
+
+    private ClientMetrics() {
+    }
+
+    // The registry of the run, the one the static methods use
+    public static MetricsRegistry registry() {
+        return RUN;
+    }
+
+    // Ids in the path are replaced, so that all calls of an endpoint are one operation
+    public static String operationName(String method, String path) {
+        int query = path.indexOf('?');
+        return method + " " + NUMERIC_SEGMENT.matcher(query < 0 ? path : path.substring(0, query)).replaceAll("/{id}");
+    }
+
+    public static void record(String operation, long latencyNanos, int status, long requestSize, long responseSize) {
+        RUN.record(operation, latencyNanos, status, requestSize, responseSize);
+    }
+
+    // null outside of a scope
+    public static String currentScope() {
+        return RUN.currentScope();
+    }
+
+    // Returns the scope the thread had before, to be restored by exitScope (threads can be nested in parallel runs)
+    public static String enterScope(String scope) {
+        return RUN.enterScope(scope);
+    }
+
+    public static void exitScope(String previous) {
+        RUN.exitScope(previous);
+    }
+
+    public static Map<String, OperationStats> operations() {
+        return RUN.operations();
+    }
+
+    public static Map<String, OperationStats> operations(String scope) {
+        return RUN.operations(scope);
+    }
+
+    public static Map<String, Map<String, OperationStats>> scopes() {
+        return RUN.scopes();
+    }
+
+    public static void writeReport(Path file) throws IOException {
+        RUN.writeReport(file);
+    }
+
+    public static void writeReport(PrintStream out) {
+        RUN.writeReport(out);
+    }
+}
@@ -0,0 +1,39 @@
+package com.hotelbooking.api.metrics;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.apache.http.impl.client.AbstractHttpClient;
+
+// Splits every exchange of a BookingClient call into connect, server wait and body read for its
+// BookingOperationEvent. The filter marks the start and the end of the exchange, the interceptors of
+// instrument() the moments the connection was ready and the response headers arrived.
+public class FlightRecorderFilter implements Filter {
+
+    // Adds the interceptors to an HTTP client of RestAssured, see BookingHttpClients
+    @SuppressWarnings("deprecation")
+    public static <C extends AbstractHttpClient> C instrument(C client) {
+        // request interceptors run once the connection is open, response ones before the body is read
+        client.addRequestInterceptor((request, context) -> BookingOperationEvent.connected());
+        client.addResponseInterceptor((response, context) -> BookingOperationEvent.headersReceived());
+        return client;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        BookingOperationEvent.exchangeStarted();
+        long requestSize = MetricsFilter.size(requestSpec.getBody());
+        Response response;
+        try {
+            response = ctx.next(requestSpec, responseSpec);
+        } catch (Exception e) {
+            // RestAssured throws connection errors (IOException) undeclared
+            BookingOperationEvent.exchangeFinished(0, requestSize, 0);
+            throw e;
+        }
+        BookingOperationEvent.exchangeFinished(response.getStatusCode(), requestSize, response.asByteArray().length);
+        return response;
+    }
+}
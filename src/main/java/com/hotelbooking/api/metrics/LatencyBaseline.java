@@ -0,0 +1,105 @@
+package com.hotelbooking.api.metrics;
+
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Latency distributions of a past run, per operation for the whole run ("run" scope) and per test class.
+// Stored as an HdrHistogram log: one compressed histogram per line, tagged with scope and operation.
+public class LatencyBaseline {
+
+    public static final String RUN_SCOPE = "run";
+
+    private final Map<String, Histogram> histograms;
+
+    private LatencyBaseline(Map<String, Histogram> histograms) {
+        this.histograms = histograms;
+    }
+
+    // The current state of ClientMetrics, test class scopes only when their name starts with scopePrefix
+    public static LatencyBaseline snapshot(String scopePrefix) {
+        return snapshot(ClientMetrics.registry(), scopePrefix);
+    }
+
+    public static LatencyBaseline snapshot(MetricsRegistry metrics, String scopePrefix) {
+        Map<String, Histogram> histograms = new TreeMap<>();
+        metrics.operations().forEach((operation, stats) -> histograms.put(key(RUN_SCOPE, operation), stats.getLatencies()));
+        metrics.scopes().forEach((scope, operations) -> {
+            if (scope.startsWith(scopePrefix))
+                operations.forEach((operation, stats) -> histograms.put(key(scope, operation), stats.getLatencies()));
+        });
+        return new LatencyBaseline(histograms);
+    }
+
+    public static LatencyBaseline read(Path file) throws IOException {
+        Map<String, Histogram> histograms = new TreeMap<>();
+        try (HistogramLogReader reader = new HistogramLogReader(file.toFile())) {
+            EncodableHistogram histogram;
+            while ((histogram = reader.nextIntervalHistogram()) != null) {
+                histograms.put(URLDecoder.decode(histogram.getTag(), StandardCharsets.UTF_8), (Histogram) histogram);
+            }
+        }
+        return new LatencyBaseline(histograms);
+    }
+
+    public void write(Path file) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (OutputStream out = Files.newOutputStream(file)) {
+            HistogramLogWriter writer = new HistogramLogWriter(out);
+            writer.outputLogFormatVersion();
+            writer.outputComment("Latency baseline of the booking API tests, microseconds");
+            writer.outputLegend();
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                Histogram histogram = entry.getValue().copy();
+                // tags can't contain spaces or commas
+                histogram.setTag(URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8));
+                writer.outputIntervalHistogram(0, 0, histogram);
+            }
+            writer.close();
+        }
+    }
+
+    public Histogram get(String scope, String operation) {
+        return histograms.get(key(scope, operation));
+    }
+
+    public int size() {
+        return histograms.size();
+    }
+
+    // Compares the current calls of a scope with the baseline, operations missing on either side are skipped
+    public List<LatencyComparison> compare(String scope, Map<String, OperationStats> operations) {
+        double alpha = Double.parseDouble(loadProperty("metrics.baseline.alpha", "0.01"));
+        double minChange = Double.parseDouble(loadProperty("metrics.baseline.min.change", "0.1"));
+        int minSamples = loadIntProperty("metrics.baseline.min.samples", 20);
+
+        List<LatencyComparison> comparisons = new ArrayList<>();
+        for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+            Histogram baseline = get(scope, entry.getKey());
+            if (baseline == null) continue;
+            comparisons.add(LatencyComparison.compare(scope + " " + entry.getKey(), baseline,
+                    entry.getValue().getLatencies(), alpha, minChange, minSamples));
+        }
+        return comparisons;
+    }
+
+    private static String key(String scope, String operation) {
+        return scope + "|" + operation;
+    }
+}
@@ -0,0 +1,97 @@
+package com.hotelbooking.api.metrics;
+
+import lombok.Getter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// One-sided Mann-Whitney U test of "the current latencies are higher than the baseline ones".
+// Rank based, so a few outliers don't decide it, and computed on histogram buckets instead of single samples.
+// A difference counts as a regression only when it's significant and the median moved by at least minChange,
+// with thousands of calls even a 1% shift is significant but not worth failing a build.
+@Getter
+public class LatencyComparison {
+
+    private final String name;
+    private final long baselineCount;
+    private final long currentCount;
+    private final double baselineMedianMillis;
+    private final double currentMedianMillis;
+    private final double pValue;
+    private final boolean regression;
+
+    private LatencyComparison(String name, long baselineCount, long currentCount, double baselineMedianMillis,
+                              double currentMedianMillis, double pValue, boolean regression) {
+        this.name = name;
+        this.baselineCount = baselineCount;
+        this.currentCount = currentCount;
+        this.baselineMedianMillis = baselineMedianMillis;
+        this.currentMedianMillis = currentMedianMillis;
+        this.pValue = pValue;
+        this.regression = regression;
+    }
+
+    public static LatencyComparison compare(String name, Histogram baseline, Histogram current,
+                                            double alpha, double minChange, long minSamples) {
+        double baselineMedian = baseline.getValueAtPercentile(50) / 1000.0;
+        double currentMedian = current.getValueAtPercentile(50) / 1000.0;
+        long n1 = baseline.getTotalCount();
+        long n2 = current.getTotalCount();
+        if (n1 < minSamples || n2 < minSamples)
+            return new LatencyComparison(name, n1, n2, baselineMedian, currentMedian, Double.NaN, false);
+
+        double pValue = pValueOfIncrease(baseline, current);
+        boolean regression = pValue < alpha && currentMedian > baselineMedian * (1 + minChange);
+        return new LatencyComparison(name, n1, n2, baselineMedian, currentMedian, pValue, regression);
+    }
+
+    // P(U >= observed) for the current sample under "same distribution", normal approximation with tie correction
+    static double pValueOfIncrease(Histogram baseline, Histogram current) {
+        // counts per bucket of both samples, in the order of values
+        Map<Long, long[]> buckets = new TreeMap<>();
+        for (HistogramIterationValue value : baseline.recordedValues())
+            buckets.computeIfAbsent(baseline.highestEquivalentValue(value.getValueIteratedTo()), key -> new long[2])[0]
+                    += value.getCountAtValueIteratedTo();
+        for (HistogramIterationValue value : current.recordedValues())
+            buckets.computeIfAbsent(current.highestEquivalentValue(value.getValueIteratedTo()), key -> new long[2])[1]
+                    += value.getCountAtValueIteratedTo();
+
+        double n1 = baseline.getTotalCount();
+        double n2 = current.getTotalCount();
+        double n = n1 + n2;
+        double rankSum = 0;
+        double ties = 0;
+        double rank = 0;
+        for (long[] counts : buckets.values()) {
+            double t = counts[0] + counts[1];
+            // all values of a bucket are ties and share the average rank
+            rankSum += counts[1] * (rank + (t + 1) / 2);
+            ties += t * t * t - t;
+            rank += t;
+        }
+        double u = rankSum - n2 * (n2 + 1) / 2;
+        double mean = n1 * n2 / 2;
+        double variance = n1 * n2 / 12 * ((n + 1) - ties / (n * (n - 1)));
+        if (variance <= 0) return 1;
+        double z = (u - mean - 0.5) / Math.sqrt(variance);
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+
+    // Abramowitz and Stegun 7.1.26, absolute error below 1.5e-7
+    private static double erfc(double x) {
+        double t = 1 / (1 + 0.3275911 * Math.abs(x));
+        double poly = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+        double erfcAbs = poly * Math.exp(-x * x);
+        return x >= 0 ? erfcAbs : 2 - erfcAbs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: median %.2f ms -> %.2f ms (%d -> %d calls), p = %s%s",
+                name, baselineMedianMillis, currentMedianMillis, baselineCount, currentCount,
+                Double.isNaN(pValue) ? "n/a, too few calls" : String.format("%.4f", pValue),
+                regression ? " REGRESSION" : "");
+    }
+}
@@ -0,0 +1,37 @@
+package com.hotelbooking.api.metrics;
+
+import io.restassured.filter.Filter;
+import io.restassured.filter.FilterContext;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+// Times every BookingClient call and counts it for its operation in ClientMetrics
+public class MetricsFilter implements Filter {
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        String operation = ClientMetrics.operationName(requestSpec.getMethod(), URI.create(requestSpec.getURI()).getPath());
+        long requestSize = size(requestSpec.getBody());
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = ctx.next(requestSpec, responseSpec);
+        } catch (RuntimeException e) {
+            ClientMetrics.record(operation, System.nanoTime() - start, 0, requestSize, 0);
+            throw e;
+        }
+        // the body is already read, the time of the whole exchange is measured
+        ClientMetrics.record(operation, System.nanoTime() - start, response.getStatusCode(), requestSize, response.asByteArray().length);
+        return response;
+    }
+
+    static long size(Object body) {
+        if (body == null) return 0;
+        if (body instanceof byte[]) return ((byte[]) body).length;
+        return String.valueOf(body).getBytes(StandardCharsets.UTF_8).length;
+    }
+}
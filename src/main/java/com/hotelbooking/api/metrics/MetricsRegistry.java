@@ -0,0 +1,103 @@
+package com.hotelbooking.api.metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-operation statistics of booking calls, e.g. "PATCH /booking/{id}".
+// A thread can also set a scope (the test class), its calls are then counted for the scope as well.
+// ClientMetrics holds the one of the run, which goes into the report and the latency baseline; tests of the metrics
+// themselves record into their own.
+public final class MetricsRegistry {
+
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, OperationStats>> scopes = new ConcurrentHashMap<>();
+    private final ThreadLocal<String> currentScopeName = new ThreadLocal<>();
+    private final ThreadLocal<Map<String, OperationStats>> currentScope = new ThreadLocal<>();
+
+    public void record(String operation, long latencyNanos, int status, long requestSize, long responseSize) {
+        operations.computeIfAbsent(operation, key -> new OperationStats())
+                .record(latencyNanos, status, requestSize, responseSize);
+        Map<String, OperationStats> scope = currentScope.get();
+        if (scope != null)
+            scope.computeIfAbsent(operation, key -> new OperationStats())
+                    .record(latencyNanos, status, requestSize, responseSize);
+    }
+
+    // null outside of a scope
+    public String currentScope() {
+        return currentScopeName.get();
+    }
+
+    // Returns the scope the thread had before, to be restored by exitScope (threads can be nested in parallel runs)
+    public String enterScope(String scope) {
+        String previous = currentScopeName.get();
+        currentScopeName.set(scope);
+        currentScope.set(scopes.computeIfAbsent(scope, key -> new ConcurrentHashMap<>()));
+        return previous;
+    }
+
+    public void exitScope(String previous) {
+        if (previous != null) {
+            enterScope(previous);
+        } else {
+            currentScopeName.remove();
+            currentScope.remove();
+        }
+    }
+
+    public Map<String, OperationStats> operations() {
+        return new TreeMap<>(operations);
+    }
+
+    public Map<String, OperationStats> operations(String scope) {
+        return new TreeMap<>(scopes.getOrDefault(scope, Map.of()));
+    }
+
+    public Map<String, Map<String, OperationStats>> scopes() {
+        return new TreeMap<>(scopes);
+    }
+
+    public void writeReport(Path file) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            writeReport(out);
+        }
+    }
+
+    public void writeReport(PrintStream out) {
+        out.println("Booking API latency of the whole run");
+        writeTable(out, operations());
+        for (Map.Entry<String, Map<String, OperationStats>> scope : scopes().entrySet()) {
+            out.println();
+            out.println(scope.getKey());
+            writeTable(out, new TreeMap<>(scope.getValue()));
+        }
+    }
+
+    private static void writeTable(PrintStream out, Map<String, OperationStats> operations) {
+        out.printf("%-24s %8s %9s %9s %9s %9s %7s %7s %10s %10s%n",
+                "operation", "count", "p50 ms", "p90 ms", "p99 ms", "max ms", "4xx %", "5xx %", "avg req B", "avg resp B");
+        for (Map.Entry<String, OperationStats> entry : operations.entrySet()) {
+            OperationStats stats = entry.getValue();
+            long count = stats.getCount();
+            if (count == 0) continue;
+            out.printf("%-24s %8d %9.2f %9.2f %9.2f %9.2f %7.1f %7.1f %10d %10d%n",
+                    entry.getKey(),
+                    count,
+                    stats.getPercentileMillis(50),
+                    stats.getPercentileMillis(90),
+                    stats.getPercentileMillis(99),
+                    stats.getMaxMillis(),
+                    100.0 * stats.getClientErrors() / count,
+                    100.0 * stats.getServerErrors() / count,
+                    stats.getRequestBytes() / count,
+                    stats.getResponseBytes() / count);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.hotelbooking.api.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency (microseconds), statuses and payload sizes of one operation. Recording doesn't take locks,
+// so parallel tests don't wait for each other here.
+public class OperationStats {
+
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final ConcurrentHistogram latencies = new ConcurrentHistogram(1, HIGHEST_TRACKABLE_MICROS, 3);
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    // status 0 means that no response was received, it's counted as a server error
+    public void record(long latencyNanos, int status, long requestSize, long responseSize) {
+        latencies.recordValue(Math.min(Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)), HIGHEST_TRACKABLE_MICROS));
+        if (status >= 500 || status == 0) serverErrors.increment();
+        else if (status >= 400) clientErrors.increment();
+        requestBytes.add(requestSize);
+        responseBytes.add(responseSize);
+    }
+
+    public long getCount() {
+        return latencies.getTotalCount();
+    }
+
+    // A copy, the recording goes on meanwhile
+    public Histogram getLatencies() {
+        return latencies.copy();
+    }
+
+    public double getPercentileMillis(double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public double getMaxMillis() {
+        return latencies.getMaxValue() / 1000.0;
+    }
+
+    // 4xx, most of them are expected by negative tests
+    public long getClientErrors() {
+        return clientErrors.sum();
+    }
+
+    // 5xx and calls without a response
+    public long getServerErrors() {
+        return serverErrors.sum();
+    }
+
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+}
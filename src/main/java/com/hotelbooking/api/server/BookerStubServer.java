@@ -0,0 +1,365 @@
+package com.hotelbooking.api.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotelbooking.api.client.BookingExecutors;
+import com.hotelbooking.api.client.BookingXmlCodec;
+import com.hotelbooking.api.model.Auth;
+import com.hotelbooking.api.model.Booking;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// In-process stand-in for the Restful Booker API.
+// Implements the endpoints used by BookingClient, including the quirks the contract tests rely on
+// (405 for unknown ids, 201 "Created" for delete and ping, "0NaN-aN-aN" for invalid dates).
+public class BookerStubServer {
+
+    private static final ReentrantLock SHARED_LOCK = new ReentrantLock();
+    private static BookerStubServer shared;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final String XML = "application/xml; charset=utf-8";
+    private static final String TEXT = "text/plain; charset=utf-8";
+
+    private final BookingStore store = new BookingStore();
+    private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+    private final String adminUser;
+    private final String adminPassword;
+
+    // locks instead of synchronized, starting and stopping do I/O
+    private final ReentrantLock lock = new ReentrantLock();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public BookerStubServer(String adminUser, String adminPassword) {
+        this.adminUser = adminUser;
+        this.adminPassword = adminPassword;
+    }
+
+    // One server per JVM, started on first use and stopped on exit
+    public static BookerStubServer shared() {
+        SHARED_LOCK.lock();
+        try {
+            if (shared == null) {
+                BookerStubServer server = new BookerStubServer(loadProperty("admin.user"), loadProperty("admin.password"));
+                server.seed();
+                server.start(loadIntProperty("booker.embedded.port", 0));
+                Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "booker-stub-shutdown"));
+                shared = server;
+            }
+            return shared;
+        } finally {
+            SHARED_LOCK.unlock();
+        }
+    }
+
+    public void start(int port) {
+        lock.lock();
+        try {
+            try {
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot start stub server on port " + port, e);
+            }
+            int threads = loadIntProperty("booker.embedded.threads", Math.max(8, Runtime.getRuntime().availableProcessors() * 2));
+            // one virtual thread per exchange with booker.executor = virtual
+            executor = BookingExecutors.newFixedExecutor("booker-stub", threads);
+            server.setExecutor(executor);
+            server.createContext("/", this::handle);
+            server.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            if (server != null) {
+                server.stop(0);
+                executor.shutdownNow();
+                server = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public BookingStore getStore() {
+        return store;
+    }
+
+    // A handful of historical bookings, like the real service has after its nightly reset
+    public void seed() {
+        String[][] guests = {
+                {"Sally", "Brown"}, {"Jim", "Wilson"}, {"Mary", "Jones"}, {"Eric", "Ericsson"}, {"Susan", "Smith"},
+                {"Mark", "Jackson"}, {"Jim", "Brown"}, {"Sally", "Wilson"}, {"Eric", "Jones"}, {"Mary", "Smith"}
+        };
+        for (int i = 0; i < guests.length; i++) {
+            Booking.BookingDates dates = Booking.BookingDates.builder()
+                    .checkin("2018-0" + (i % 9 + 1) + "-01")
+                    .checkout("2019-0" + (i % 9 + 1) + "-01")
+                    .build();
+            store.create(Booking.builder()
+                    .firstname(guests[i][0])
+                    .lastname(guests[i][1])
+                    .totalprice(100 + i * 111)
+                    .depositpaid(i % 2 == 0)
+                    .bookingdates(dates)
+                    .additionalneeds("Breakfast")
+                    .build());
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+
+            if (path.equals("/ping") && method.equals("GET")) {
+                sendText(exchange, 201, "Created");
+            } else if (path.equals("/auth") && method.equals("POST")) {
+                authenticate(exchange);
+            } else if (path.equals("/booking") || path.equals("/booking/")) {
+                if (method.equals("GET")) listBookings(exchange);
+                else if (method.equals("POST")) createBooking(exchange);
+                else sendText(exchange, 404, "Not Found");
+            } else if (path.startsWith("/booking/")) {
+                Integer id = parseId(path.substring("/booking/".length()));
+                switch (method) {
+                    case "GET": getBooking(exchange, id); break;
+                    case "PATCH": case "PUT": updateBooking(exchange, id); break;
+                    case "DELETE": deleteBooking(exchange, id); break;
+                    default: sendText(exchange, 404, "Not Found");
+                }
+            } else {
+                sendText(exchange, 404, "Not Found");
+            }
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            sendText(exchange, 400, "Bad Request");
+        } catch (RuntimeException e) {
+            sendText(exchange, 500, "Internal Server Error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void authenticate(HttpExchange exchange) throws IOException {
+        Auth auth = MAPPER.readValue(exchange.getRequestBody(), Auth.class);
+        if (adminUser.equals(auth.getUsername()) && adminPassword.equals(auth.getPassword())) {
+            String token = newToken();
+            tokens.add(token);
+            sendJson(exchange, 200, "{\"token\":\"" + token + "\"}");
+        } else {
+            sendJson(exchange, 200, "{\"reason\":\"Bad credentials\"}");
+        }
+    }
+
+    private void listBookings(HttpExchange exchange) throws IOException {
+        List<Integer> ids = store.findIds(parseQuery(exchange.getRequestURI().getRawQuery()));
+        StringBuilder json = new StringBuilder(ids.size() * 18 + 2).append('[');
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"bookingid\":").append(ids.get(i)).append('}');
+        }
+        sendJson(exchange, 200, json.append(']').toString());
+    }
+
+    private void createBooking(HttpExchange exchange) throws IOException {
+        Booking booking = readBooking(exchange);
+        if (booking.getFirstname() == null || booking.getLastname() == null || booking.getTotalprice() == null
+                || booking.getDepositpaid() == null || booking.getBookingdates() == null) {
+            sendText(exchange, 500, "Internal Server Error");
+            return;
+        }
+        int id = store.create(booking);
+        Map<String, Object> created = new HashMap<>();
+        created.put("bookingid", id);
+        created.put("booking", store.get(id));
+        sendBody(exchange, created, store.get(id));
+    }
+
+    // Supports conditional requests: the ETag of an unchanged booking in If-None-Match gets 304 without a body
+    private void getBooking(HttpExchange exchange, Integer id) throws IOException {
+        Booking booking = id == null ? null : store.get(id);
+        if (booking == null) {
+            sendText(exchange, 404, "Not Found");
+            return;
+        }
+        boolean xml = acceptsXml(exchange);
+        String body = xml ? toXml(booking) : MAPPER.writeValueAsString(booking);
+        String etag = etag(body);
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        send(exchange, 200, xml ? XML : JSON, body);
+    }
+
+    private void updateBooking(HttpExchange exchange, Integer id) throws IOException {
+        if (!isAuthorized(exchange)) {
+            sendText(exchange, 403, "Forbidden");
+            return;
+        }
+        Booking patch = readBooking(exchange);
+        Booking updated = id == null ? null : store.patch(id, patch);
+        if (updated == null) {
+            sendText(exchange, 405, "Method Not Allowed");
+            return;
+        }
+        sendBooking(exchange, updated);
+    }
+
+    private void deleteBooking(HttpExchange exchange, Integer id) throws IOException {
+        if (!isAuthorized(exchange)) {
+            sendText(exchange, 403, "Forbidden");
+            return;
+        }
+        if (id == null || !store.delete(id)) {
+            sendText(exchange, 405, "Method Not Allowed");
+            return;
+        }
+        sendText(exchange, 201, "Created");
+    }
+
+    // Accepts the cookie token issued by /auth or the admin credentials as basic auth
+    private boolean isAuthorized(HttpExchange exchange) {
+        String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+        if (cookie != null) {
+            for (String part : cookie.split(";")) {
+                String trimmed = part.trim();
+                if (trimmed.startsWith("token=") && tokens.contains(trimmed.substring("token=".length())))
+                    return true;
+            }
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization != null && authorization.startsWith("Basic ")) {
+            String expected = Base64.getEncoder()
+                    .encodeToString((adminUser + ":" + adminPassword).getBytes(StandardCharsets.UTF_8));
+            return expected.equals(authorization.substring("Basic ".length()).trim());
+        }
+        return false;
+    }
+
+    private Booking readBooking(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.contains("xml")) {
+            return BookingXmlCodec.readBooking(body);
+        }
+        return MAPPER.readValue(body, Booking.class);
+    }
+
+    private void sendBooking(HttpExchange exchange, Booking booking) throws IOException {
+        sendBody(exchange, booking, booking);
+    }
+
+    // Responds with XML when the client accepts it and JSON otherwise
+    private void sendBody(HttpExchange exchange, Object json, Booking xml) throws IOException {
+        if (acceptsXml(exchange)) {
+            send(exchange, 200, XML, toXml(xml));
+        } else {
+            sendJson(exchange, 200, MAPPER.writeValueAsString(json));
+        }
+    }
+
+    private static boolean acceptsXml(HttpExchange exchange) {
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return accept != null && accept.contains("xml") && !accept.contains("json");
+    }
+
+    // Weak validator in the format of the Express app behind the real service: W/"<length>-<sha1>"
+    private static String etag(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+            return "W/\"" + Integer.toHexString(bytes.length) + "-" + Base64.getEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    private static String toXml(Booking booking) {
+        return BookingXmlCodec.toXmlString(booking);
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String body) throws IOException {
+        send(exchange, status, JSON, body);
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String body) throws IOException {
+        send(exchange, status, TEXT, body);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Integer parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            String key = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String newToken() {
+        StringBuilder token = new StringBuilder(15);
+        for (int i = 0; i < 15; i++) {
+            token.append(Character.forDigit(RANDOM.nextInt(16), 16));
+        }
+        return token.toString();
+    }
+
+    public static void main(String[] args) {
+        BookerStubServer server = new BookerStubServer(loadProperty("admin.user"), loadProperty("admin.password"));
+        server.seed();
+        server.start(args.length > 0 ? Integer.parseInt(args[0]) : loadIntProperty("booker.embedded.port", 3001));
+        System.out.println("Booker stub server listening on " + server.getBaseUrl());
+    }
+}
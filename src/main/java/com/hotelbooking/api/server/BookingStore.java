@@ -0,0 +1,119 @@
+package com.hotelbooking.api.server;
+
+import com.hotelbooking.api.model.Booking;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Thread-safe in-memory storage behind BookerStubServer.
+// Bookings are immutable snapshots, every update replaces the whole value atomically.
+public class BookingStore {
+
+    // The same value the real service stores for a date it cannot parse
+    public static final String INVALID_DATE = "0NaN-aN-aN";
+
+    private final ConcurrentNavigableMap<Integer, Booking> bookings = new ConcurrentSkipListMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    public int create(Booking booking) {
+        int id = sequence.incrementAndGet();
+        bookings.put(id, normalize(booking));
+        return id;
+    }
+
+    public Booking get(int id) {
+        return bookings.get(id);
+    }
+
+    // Applies non-null fields of the patch, returns null when the booking doesn't exist
+    public Booking patch(int id, Booking patch) {
+        return bookings.computeIfPresent(id, (key, current) -> merge(current, patch));
+    }
+
+    public boolean delete(int id) {
+        return bookings.remove(id) != null;
+    }
+
+    public int size() {
+        return bookings.size();
+    }
+
+    // Mirrors the /booking query filters: exact names, checkin strictly after and checkout strictly before the given dates
+    public List<Integer> findIds(Map<String, String> filters) {
+        String firstname = filters.get("firstname");
+        String lastname = filters.get("lastname");
+        LocalDate checkin = parseFilterDate(filters.get("checkin"));
+        LocalDate checkout = parseFilterDate(filters.get("checkout"));
+
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, Booking> entry : bookings.entrySet()) {
+            Booking booking = entry.getValue();
+            if (firstname != null && !firstname.equals(booking.getFirstname())) continue;
+            if (lastname != null && !lastname.equals(booking.getLastname())) continue;
+            if (checkin != null && !isAfter(booking.getBookingdates().getCheckin(), checkin)) continue;
+            if (checkout != null && !isBefore(booking.getBookingdates().getCheckout(), checkout)) continue;
+            ids.add(entry.getKey());
+        }
+        return ids;
+    }
+
+    private static Booking merge(Booking current, Booking patch) {
+        Booking.BookingBuilder merged = current.toBuilder();
+        if (patch.getFirstname() != null) merged.firstname(patch.getFirstname());
+        if (patch.getLastname() != null) merged.lastname(patch.getLastname());
+        if (patch.getTotalprice() != null) merged.totalprice(patch.getTotalprice());
+        if (patch.getDepositpaid() != null) merged.depositpaid(patch.getDepositpaid());
+        if (patch.getAdditionalneeds() != null) merged.additionalneeds(patch.getAdditionalneeds());
+        // dates are replaced as a whole, a missing date becomes invalid just like on the real service
+        if (patch.getBookingdates() != null) merged.bookingdates(normalize(patch.getBookingdates()));
+        return merged.build();
+    }
+
+    private static Booking normalize(Booking booking) {
+        Booking.BookingDates dates = booking.getBookingdates() == null
+                ? new Booking.BookingDates()
+                : booking.getBookingdates();
+        return booking.toBuilder().bookingdates(normalize(dates)).build();
+    }
+
+    private static Booking.BookingDates normalize(Booking.BookingDates dates) {
+        return Booking.BookingDates.builder()
+                .checkin(normalizeDate(dates.getCheckin()))
+                .checkout(normalizeDate(dates.getCheckout()))
+                .build();
+    }
+
+    private static String normalizeDate(String date) {
+        LocalDate parsed = parseDate(date);
+        return parsed == null ? INVALID_DATE : parsed.toString();
+    }
+
+    private static boolean isAfter(String date, LocalDate bound) {
+        LocalDate parsed = parseDate(date);
+        return parsed != null && parsed.isAfter(bound);
+    }
+
+    private static boolean isBefore(String date, LocalDate bound) {
+        LocalDate parsed = parseDate(date);
+        return parsed != null && parsed.isBefore(bound);
+    }
+
+    private static LocalDate parseFilterDate(String date) {
+        return date == null || date.isEmpty() ? null : parseDate(date);
+    }
+
+    private static LocalDate parseDate(String date) {
+        if (date == null) return null;
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.hotelbooking.api.sharding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+// Splits the tests into `count` shards (1..count) with about the same total duration.
+// Tests with a known duration are assigned longest first, each to the shard with the least work so far (LPT).
+// A test without history goes by a hash of its name, a test class without history as a whole by a hash of the
+// class name, so every shard places it the same way without coordinating. A new case of a parameterized test goes
+// with the recorded cases of the test, a parameterized test without history as a whole by a hash of its name.
+public class ShardPlan {
+
+    // the case index surefire appends to the name of a parameterized or repeated test, e.g. "[3]"
+    private static final Pattern INVOCATION = Pattern.compile("\\[\\d+]$");
+
+    private final int count;
+    private final Map<String, Integer> assignments;
+    // shard of the first recorded case of every test, by key(className, test name without the case index)
+    private final Map<String, Integer> testShards;
+    // shards with recorded tests, by class
+    private final Map<String, Set<Integer>> classShards;
+    private final double[] expectedSeconds;
+
+    private ShardPlan(int count, Map<String, Integer> assignments, Map<String, Set<Integer>> classShards, double[] expectedSeconds) {
+        this.count = count;
+        this.assignments = assignments;
+        this.classShards = classShards;
+        this.expectedSeconds = expectedSeconds;
+        this.testShards = new HashMap<>();
+        // sorted, so that every shard picks the same first case
+        new TreeMap<>(assignments).forEach((key, shard) -> testShards.putIfAbsent(withoutInvocation(key), shard));
+    }
+
+    // durations: seconds by key(className, testName)
+    public static ShardPlan balance(Map<String, Double> durations, int count) {
+        if (count < 1) throw new IllegalArgumentException("Shard count must be positive: " + count);
+        List<Map.Entry<String, Double>> longestFirst = new ArrayList<>(durations.entrySet());
+        // ties by name, so that every shard computes the same plan
+        longestFirst.sort(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+        double[] loads = new double[count];
+        Map<String, Integer> assignments = new HashMap<>();
+        Map<String, Set<Integer>> classShards = new HashMap<>();
+        for (Map.Entry<String, Double> test : longestFirst) {
+            int lightest = 0;
+            for (int shard = 1; shard < count; shard++) {
+                if (loads[shard] < loads[lightest]) lightest = shard;
+            }
+            loads[lightest] += test.getValue();
+            assignments.put(test.getKey(), lightest + 1);
+            classShards.computeIfAbsent(classNameOf(test.getKey()), key -> new HashSet<>()).add(lightest + 1);
+        }
+        return new ShardPlan(count, assignments, classShards, loads);
+    }
+
+    public static String key(String className, String testName) {
+        return className + "#" + testName;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isKnownClass(String className) {
+        return classShards.containsKey(className);
+    }
+
+    // The shard of a whole class without history
+    public int shardOfClass(String className) {
+        return hashShard(className);
+    }
+
+    public int shardOf(String className, String testName) {
+        if (!isKnownClass(className)) return shardOfClass(className);
+        Integer shard = assignments.get(key(className, testName));
+        if (shard != null) return shard;
+        String test = withoutInvocation(key(className, testName));
+        shard = testShards.get(test);
+        return shard != null ? shard : hashShard(test);
+    }
+
+    // Whether the shard runs any case of the class. `testNames` are the tests the class declares now, as surefire
+    // names them, parameterized ones without a case index: the ones without history are placed like shardOf does.
+    public boolean hasCasesInShard(String className, Collection<String> testNames, int shard) {
+        if (!isKnownClass(className)) return shardOfClass(className) == shard;
+        if (classShards.get(className).contains(shard)) return true;
+        for (String testName : testNames) {
+            String test = key(className, testName);
+            if (!testShards.containsKey(test) && hashShard(test) == shard) return true;
+        }
+        return false;
+    }
+
+    // Sum of the known durations per shard, index 0 is shard 1
+    public double[] getExpectedSeconds() {
+        return expectedSeconds.clone();
+    }
+
+    public String describe() {
+        StringBuilder text = new StringBuilder();
+        text.append(assignments.size()).append(" tests with known durations in ").append(count).append(" shards, expected seconds:");
+        for (int shard = 0; shard < count; shard++) {
+            text.append(' ').append(shard + 1).append('=').append(String.format("%.1f", expectedSeconds[shard]));
+        }
+        return text.toString();
+    }
+
+    private int hashShard(String name) {
+        return Math.floorMod(name.hashCode(), count) + 1;
+    }
+
+    private static String classNameOf(String key) {
+        return key.substring(0, key.indexOf('#'));
+    }
+
+    private static String withoutInvocation(String key) {
+        return INVOCATION.matcher(key).replaceFirst("");
+    }
+}
@@ -0,0 +1,171 @@
+package com.hotelbooking.api.sharding;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Reads and merges surefire XML reports (TEST-*.xml). Test cases are taken by their classname attribute,
+// not by the file they are in: with parallel execution surefire may write a case into another class's file.
+public class ShardReports {
+
+    // skip message of the tests that belong to another shard, see ShardExtension
+    public static final String OTHER_SHARD = "runs in shard ";
+
+    private ShardReports() {
+    }
+
+    // Seconds per ShardPlan.key of every test that ran, skipped tests are left out
+    public static Map<String, Double> readDurations(Path reportsDir) {
+        Map<String, Double> durations = new HashMap<>();
+        for (Element testCase : ranTestCases(List.of(reportsDir)).values()) {
+            if (hasChild(testCase, "skipped")) continue;
+            durations.put(ShardPlan.key(testCase.getAttribute("classname"), testCase.getAttribute("name")),
+                    parseSeconds(testCase.getAttribute("time")));
+        }
+        return durations;
+    }
+
+    // Writes one TEST-<class>.xml per test class into outputDir with the cases of all shards,
+    // a case that another shard ran replaces the "runs in shard" skip
+    public static int merge(List<Path> shardDirs, Path outputDir) {
+        Map<String, Element> testCases = ranTestCases(shardDirs);
+        Map<String, List<Element>> byClass = new TreeMap<>();
+        testCases.forEach((key, testCase) ->
+                byClass.computeIfAbsent(testCase.getAttribute("classname"), name -> new ArrayList<>()).add(testCase));
+        try {
+            Files.createDirectories(outputDir);
+            DocumentBuilder builder = documentBuilder();
+            for (Map.Entry<String, List<Element>> testClass : byClass.entrySet()) {
+                Document document = builder.newDocument();
+                Element suite = document.createElement("testsuite");
+                document.appendChild(suite);
+                int failures = 0, errors = 0, skipped = 0;
+                double seconds = 0;
+                for (Element testCase : testClass.getValue()) {
+                    suite.appendChild(document.importNode(testCase, true));
+                    if (hasChild(testCase, "failure")) failures++;
+                    if (hasChild(testCase, "error")) errors++;
+                    if (hasChild(testCase, "skipped")) skipped++;
+                    seconds += parseSeconds(testCase.getAttribute("time"));
+                }
+                suite.setAttribute("name", testClass.getKey());
+                suite.setAttribute("tests", String.valueOf(testClass.getValue().size()));
+                suite.setAttribute("failures", String.valueOf(failures));
+                suite.setAttribute("errors", String.valueOf(errors));
+                suite.setAttribute("skipped", String.valueOf(skipped));
+                suite.setAttribute("time", String.format(Locale.ROOT, "%.3f", seconds));
+                write(document, outputDir.resolve("TEST-" + testClass.getKey() + ".xml"));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return testCases.size();
+    }
+
+    // mvn compile exec:java -Dexec.mainClass=com.hotelbooking.api.sharding.ShardReports -Dexec.args="<output dir> <shard report dir>..."
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: ShardReports <output dir> <shard report dir>...");
+            System.exit(2);
+        }
+        List<Path> shardDirs = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            shardDirs.add(Paths.get(args[i]));
+        }
+        int testCases = merge(shardDirs, Paths.get(args[0]));
+        System.out.println("Merged " + testCases + " test cases of " + shardDirs.size() + " shards into " + args[0]);
+    }
+
+    // One case per test, the one that ran rather than one skipped for another shard, the longest of repeated ones
+    private static Map<String, Element> ranTestCases(List<Path> reportDirs) {
+        Map<String, Element> testCases = new LinkedHashMap<>();
+        DocumentBuilder builder = documentBuilder();
+        for (Path dir : reportDirs) {
+            if (!Files.isDirectory(dir)) continue;
+            try (DirectoryStream<Path> reports = Files.newDirectoryStream(dir, "TEST-*.xml")) {
+                for (Path report : reports) {
+                    NodeList cases = builder.parse(report.toFile()).getElementsByTagName("testcase");
+                    for (int i = 0; i < cases.getLength(); i++) {
+                        Element testCase = (Element) cases.item(i);
+                        if (isOtherShard(testCase)) continue;
+                        String key = ShardPlan.key(testCase.getAttribute("classname"), testCase.getAttribute("name"));
+                        testCases.merge(key, testCase, ShardReports::preferred);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SAXException e) {
+                throw new IllegalStateException("Malformed surefire report in " + dir, e);
+            }
+        }
+        return testCases;
+    }
+
+    private static Element preferred(Element first, Element second) {
+        if (hasChild(first, "skipped") != hasChild(second, "skipped")) return hasChild(first, "skipped") ? second : first;
+        return parseSeconds(second.getAttribute("time")) > parseSeconds(first.getAttribute("time")) ? second : first;
+    }
+
+    private static boolean isOtherShard(Element testCase) {
+        NodeList skipped = testCase.getElementsByTagName("skipped");
+        return skipped.getLength() > 0 && ((Element) skipped.item(0)).getAttribute("message").startsWith(OTHER_SHARD);
+    }
+
+    private static boolean hasChild(Element element, String name) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals(name)) return true;
+        }
+        return false;
+    }
+
+    private static double parseSeconds(String time) {
+        // surefire writes times above a second with grouping, e.g. "1,234.5"
+        return time.isEmpty() ? 0 : Double.parseDouble(time.replace(",", ""));
+    }
+
+    private static DocumentBuilder documentBuilder() {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Cannot create an XML parser", e);
+        }
+    }
+
+    private static void write(Document document, Path file) throws IOException {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            transformer.transform(new DOMSource(document), new StreamResult(file.toFile()));
+        } catch (TransformerException e) {
+            throw new IOException("Cannot write " + file, e);
+        }
+    }
+}
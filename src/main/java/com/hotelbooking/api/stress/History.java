@@ -0,0 +1,67 @@
+package com.hotelbooking.api.stress;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Operations of a stress run as they complete, from any number of threads.
+// Written as JSON lines so that HistoryChecker can check it again later, or another tool can read it.
+public class History {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final long origin = System.nanoTime();
+    private final ConcurrentLinkedQueue<HistoryEvent> events = new ConcurrentLinkedQueue<>();
+
+    // Nanoseconds since the history started, System.nanoTime is comparable across threads
+    public long now() {
+        return System.nanoTime() - origin;
+    }
+
+    public void record(HistoryEvent event) {
+        events.add(event);
+    }
+
+    // Events by start time
+    public List<HistoryEvent> events() {
+        List<HistoryEvent> sorted = new ArrayList<>(events);
+        sorted.sort(Comparator.comparingLong(HistoryEvent::getStart));
+        return sorted;
+    }
+
+    public void write(Path file) {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                for (HistoryEvent event : events()) {
+                    writer.write(MAPPER.writeValueAsString(event));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static List<HistoryEvent> read(Path file) {
+        List<HistoryEvent> events = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) events.add(MAPPER.readValue(line, HistoryEvent.class));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,185 @@
+package com.hotelbooking.api.stress;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Checks a stress history offline. Every field a worker writes is a register with unique values, so each value read
+// names the write it came from. Only real-time order is used: a precedes b when a ended before b started, operations
+// that overlap may take effect in either order. A write without a response may take effect at any time after it
+// was sent. Reported anomalies:
+// - lost update: an acknowledged write, and after all writes ended the field still holds a value written before it
+// - stale read: a read returns a value although a newer write had been acknowledged before the read was sent
+// - resurrected after delete: the booking is read or updated successfully after its deletion was acknowledged
+// - impossible read: a value that no write produced, or not yet, or one whose write was refused
+public class HistoryChecker {
+
+    public enum Kind { LOST_UPDATE, STALE_READ, RESURRECTED_AFTER_DELETE, IMPOSSIBLE_READ }
+
+    private static final int EXAMPLES = 10;
+
+    private HistoryChecker() {
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Anomaly {
+        private final Kind kind;
+        private final int bookingId;
+        private final String description;
+
+        @Override
+        public String toString() {
+            return kind + " booking " + bookingId + ": " + description;
+        }
+    }
+
+    public static List<Anomaly> check(List<HistoryEvent> history) {
+        Map<Integer, List<HistoryEvent>> byBooking = new TreeMap<>();
+        for (HistoryEvent event : history) {
+            byBooking.computeIfAbsent(event.getBookingId(), id -> new ArrayList<>()).add(event);
+        }
+        List<Anomaly> anomalies = new ArrayList<>();
+        byBooking.forEach((id, events) -> {
+            events.sort(Comparator.comparingLong(HistoryEvent::getStart));
+            checkDeletes(id, events, anomalies);
+            events.stream()
+                    .filter(event -> event.getValues() != null && event.getType() != HistoryEvent.Type.READ)
+                    .flatMap(event -> event.getValues().keySet().stream())
+                    .distinct()
+                    .sorted()
+                    .forEach(field -> checkRegister(id, field, events, anomalies));
+        });
+        return anomalies;
+    }
+
+    // mvn compile exec:java -Dexec.mainClass=com.hotelbooking.api.stress.HistoryChecker -Dexec.args="target/stress-history.jsonl"
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: HistoryChecker <history file>");
+            System.exit(2);
+        }
+        List<HistoryEvent> history = History.read(Paths.get(args[0]));
+        List<Anomaly> anomalies = check(history);
+        System.out.println(describe(history, anomalies));
+        System.exit(anomalies.isEmpty() ? 0 : 1);
+    }
+
+    public static String describe(List<HistoryEvent> history, List<Anomaly> anomalies) {
+        Map<HistoryEvent.Type, Integer> operations = new EnumMap<>(HistoryEvent.Type.class);
+        history.forEach(event -> operations.merge(event.getType(), 1, Integer::sum));
+        Map<Kind, List<Anomaly>> byKind = new EnumMap<>(Kind.class);
+        anomalies.forEach(anomaly -> byKind.computeIfAbsent(anomaly.getKind(), kind -> new ArrayList<>()).add(anomaly));
+
+        StringBuilder text = new StringBuilder();
+        text.append(history.size()).append(" operations ").append(operations).append(System.lineSeparator());
+        for (Kind kind : Kind.values()) {
+            List<Anomaly> found = byKind.getOrDefault(kind, List.of());
+            text.append(String.format("%-26s %d%n", kind, found.size()));
+            found.stream().limit(EXAMPLES).forEach(anomaly -> text.append("  ").append(anomaly).append(System.lineSeparator()));
+        }
+        return text.toString();
+    }
+
+    private static void checkDeletes(int id, List<HistoryEvent> events, List<Anomaly> anomalies) {
+        HistoryEvent delete = events.stream()
+                .filter(event -> event.getType() == HistoryEvent.Type.DELETE && event.isOk())
+                .min(Comparator.comparingLong(HistoryEvent::getEnd))
+                .orElse(null);
+        if (delete == null) return;
+        for (HistoryEvent event : events) {
+            boolean alive = (event.getType() == HistoryEvent.Type.READ || event.getType() == HistoryEvent.Type.WRITE) && event.isOk();
+            if (alive && event.getStart() > delete.getEnd())
+                anomalies.add(new Anomaly(Kind.RESURRECTED_AFTER_DELETE, id, event.getType() + " at " + millis(event.getStart())
+                        + " succeeded, the delete of process " + delete.getProcess() + " was acknowledged at " + millis(delete.getEnd())));
+        }
+    }
+
+    private static void checkRegister(int id, String field, List<HistoryEvent> events, List<Anomaly> anomalies) {
+        Map<String, HistoryEvent> writes = new HashMap<>();
+        List<HistoryEvent> acknowledged = new ArrayList<>();
+        long lastWriteEnd = Long.MIN_VALUE;
+        boolean deleted = false;
+        for (HistoryEvent event : events) {
+            if (event.getType() == HistoryEvent.Type.DELETE) deleted = true;
+            if (!isWriteOf(event, field)) continue;
+            writes.put(event.getValues().get(field), event);
+            if (event.isOk()) acknowledged.add(event);
+            lastWriteEnd = Math.max(lastWriteEnd, visibleUntil(event));
+        }
+
+        // for a read: the latest start of the writes acknowledged before it was sent, found by binary search
+        acknowledged.sort(Comparator.comparingLong(HistoryEvent::getEnd));
+        long[] ends = new long[acknowledged.size()];
+        long[] latestStarts = new long[acknowledged.size()];
+        for (int i = 0; i < ends.length; i++) {
+            ends[i] = acknowledged.get(i).getEnd();
+            latestStarts[i] = Math.max(i == 0 ? Long.MIN_VALUE : latestStarts[i - 1], acknowledged.get(i).getStart());
+        }
+
+        HistoryEvent finalRead = null;
+        for (HistoryEvent read : events) {
+            if (read.getType() != HistoryEvent.Type.READ || !read.isOk() || read.getValues() == null) continue;
+            String value = read.getValues().get(field);
+            HistoryEvent write = writes.get(value);
+            if (write == null || write.getStart() > read.getEnd() || !(write.isOk() || write.isIndeterminate())) {
+                anomalies.add(new Anomaly(Kind.IMPOSSIBLE_READ, id, "read at " + millis(read.getStart()) + " returned "
+                        + field + " = " + value + (write == null ? ", which was never written" : " of " + describe(write))));
+                continue;
+            }
+            int lastAcknowledged = lastEndedBefore(ends, read.getStart());
+            if (lastAcknowledged >= 0 && latestStarts[lastAcknowledged] > visibleUntil(write))
+                anomalies.add(new Anomaly(Kind.STALE_READ, id, "read at " + millis(read.getStart()) + " returned "
+                        + field + " = " + value + " of " + describe(write) + ", a newer write was acknowledged before"));
+            if (read.getStart() > lastWriteEnd && finalRead == null) finalRead = read;
+        }
+
+        // the value that remained once no write was in flight any more; a deletion ends the register
+        if (finalRead == null || deleted) return;
+        HistoryEvent remained = writes.get(finalRead.getValues().get(field));
+        for (HistoryEvent write : acknowledged) {
+            if (write.getType() == HistoryEvent.Type.WRITE && visibleUntil(remained) < write.getStart())
+                anomalies.add(new Anomaly(Kind.LOST_UPDATE, id, describe(write) + " was acknowledged, but "
+                        + field + " = " + remained.getValues().get(field) + " of " + describe(remained) + " remained"));
+        }
+    }
+
+    // Index of the last acknowledged write that ended before `time`, -1 when there is none
+    private static int lastEndedBefore(long[] ends, long time) {
+        int low = 0;
+        int high = ends.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] < time) low = middle + 1;
+            else high = middle;
+        }
+        return low - 1;
+    }
+
+    private static boolean isWriteOf(HistoryEvent event, String field) {
+        return (event.getType() == HistoryEvent.Type.CREATE || event.getType() == HistoryEvent.Type.WRITE)
+                && event.getValues() != null && event.getValues().containsKey(field);
+    }
+
+    // A write without a response may still be applied later
+    private static long visibleUntil(HistoryEvent write) {
+        return write.isIndeterminate() ? Long.MAX_VALUE : write.getEnd();
+    }
+
+    private static String describe(HistoryEvent write) {
+        return write.getType() + " of process " + write.getProcess() + " at " + millis(write.getStart()) + "-" + millis(write.getEnd())
+                + (write.isOk() ? "" : " (status " + write.getStatus() + ")");
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3fms", nanos / 1e6);
+    }
+}
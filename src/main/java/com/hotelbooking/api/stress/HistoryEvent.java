@@ -0,0 +1,41 @@
+package com.hotelbooking.api.stress;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// One completed operation of a stress run. Times are nanoseconds since the start of the history,
+// from the moment the request was sent until its response (or error) arrived.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryEvent {
+
+    public enum Type { CREATE, READ, WRITE, DELETE }
+
+    // the worker that sent the request
+    private int process;
+    private Type type;
+    private int bookingId;
+    private long start;
+    private long end;
+    // 0 when no response was received
+    private int status;
+    // written fields for CREATE and WRITE, the fields that were read for READ
+    private Map<String, String> values;
+
+    // The request was applied: 200 for create, read and patch, 201 for delete
+    @JsonIgnore
+    public boolean isOk() {
+        return type == Type.DELETE ? status == 201 : status == 200;
+    }
+
+    // No response or a server error: the write may or may not have been applied
+    @JsonIgnore
+    public boolean isIndeterminate() {
+        return status == 0 || status >= 500;
+    }
+}
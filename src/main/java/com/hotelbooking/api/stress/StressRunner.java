@@ -0,0 +1,224 @@
+package com.hotelbooking.api.stress;
+
+import com.hotelbooking.api.client.AuthTokenManager;
+import com.hotelbooking.api.client.BookingClient;
+import com.hotelbooking.api.client.BookingExecutors;
+import com.hotelbooking.api.client.BookingResult;
+import com.hotelbooking.api.fixtures.BookingGenerator;
+import com.hotelbooking.api.load.LoadMix;
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadLongProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Many workers patch, read and delete the same few bookings at once, every operation is recorded in a History
+// and HistoryChecker looks for lost updates, stale reads and bookings that came back after their deletion.
+// A patch sets one field, firstname or additionalneeds, to a value no other write uses, so every read tells which
+// write it saw. A deleted booking is replaced by a new one, and some reads and patches still go to deleted ones.
+public class StressRunner {
+
+    static final List<String> FIELDS = List.of("firstname", "additionalneeds");
+    // share of reads and patches sent to a deleted booking
+    private static final double DELETED_SHARE = 0.1;
+
+    private final StressSettings settings;
+    private final LoadMix mix;
+    // without a cache: reads must see the server
+    private final BookingClient client;
+    private final History history = new History();
+    private AuthTokenManager tokenManager;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Integer> live = new ArrayList<>();
+    private final List<Integer> deleted = new ArrayList<>();
+
+    public StressRunner(StressSettings settings) {
+        this.settings = settings;
+        this.mix = LoadMix.parse(settings.getMix());
+        this.client = settings.getBaseUrl() == null ? new BookingClient(null) : new BookingClient(settings.getBaseUrl(), null);
+    }
+
+    public static void main(String[] args) {
+        StressSettings settings = StressSettings.fromProperties();
+        StressRunner runner = new StressRunner(settings);
+        List<HistoryChecker.Anomaly> anomalies = runner.run();
+        System.out.println(HistoryChecker.describe(runner.getHistory().events(), anomalies));
+        System.out.println("History written to " + settings.getHistoryFile());
+        System.exit(anomalies.isEmpty() ? 0 : 1);
+    }
+
+    public List<HistoryChecker.Anomaly> run() {
+        if (settings.getBaseUrl() == null) {
+            BookingClient.ping();
+            tokenManager = AuthTokenManager.forCredentials(loadProperty("admin.user"), loadProperty("admin.password"));
+        } else {
+            // the shared managers hold tokens of the configured host
+            tokenManager = new AuthTokenManager(client, loadProperty("admin.user"), loadProperty("admin.password"),
+                    Duration.ofSeconds(loadLongProperty("auth.token.ttl.seconds", 0)));
+        }
+        // the setup and the final reads are recorded as the process after the workers
+        int main = settings.getThreads();
+        for (int i = 0; i < settings.getBookings(); i++) {
+            create(main);
+        }
+
+        long end = System.nanoTime() + settings.getDuration().toNanos();
+        ExecutorService workers = BookingExecutors.newFixedExecutor("booker-stress", settings.getThreads());
+        List<Future<?>> running = new ArrayList<>();
+        for (int process = 0; process < settings.getThreads(); process++) {
+            int worker = process;
+            running.add(workers.submit(() -> work(worker, end)));
+        }
+        try {
+            for (Future<?> worker : running) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while the stress run was going on", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A stress worker failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        // with nothing in flight any more, the final value of every field
+        List<Integer> all = new ArrayList<>(live);
+        all.addAll(deleted);
+        for (int id : all) {
+            read(main, id);
+        }
+        history.write(Paths.get(settings.getHistoryFile()));
+        for (int id : live) {
+            client.deleteBooking(id, tokenManager.getToken());
+        }
+        return HistoryChecker.check(history.events());
+    }
+
+    public History getHistory() {
+        return history;
+    }
+
+    private void work(int process, long end) {
+        long sequence = 0;
+        while (System.nanoTime() < end) {
+            LoadMix.Operation operation = mix.next();
+            switch (operation) {
+                case GET:
+                    read(process, target());
+                    break;
+                case PATCH:
+                    write(process, target(), ++sequence);
+                    break;
+                case DELETE:
+                    delete(process);
+                    break;
+                default:
+                    throw new IllegalArgumentException("stress.mix supports get, patch and delete, not " + operation);
+            }
+        }
+    }
+
+    private void create(int process) {
+        Booking booking = BookingGenerator.shared().next();
+        long start = history.now();
+        CreatedBooking created = client.createBooking(booking, tokenManager.getToken());
+        history.record(new HistoryEvent(process, HistoryEvent.Type.CREATE, created.getBookingid(), start, history.now(), 200, fields(booking)));
+        lock.lock();
+        try {
+            live.add(created.getBookingid());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void read(int process, int id) {
+        long start = history.now();
+        BookingResult result = client.fetchBookingById(id);
+        Map<String, String> values = result.isFound() ? fields(result.getBooking()) : null;
+        history.record(new HistoryEvent(process, HistoryEvent.Type.READ, id, start, history.now(), result.getStatus(), values));
+    }
+
+    private void write(int process, int id, long sequence) {
+        String field = FIELDS.get(ThreadLocalRandom.current().nextInt(FIELDS.size()));
+        // unique in the run: the process and its own sequence
+        String value = "p" + process + "-" + sequence;
+        Booking patch = field.equals("firstname")
+                ? Booking.builder().firstname(value).build()
+                : Booking.builder().additionalneeds(value).build();
+        long start = history.now();
+        int status;
+        try {
+            status = client.partialUpdateBookingJson(patch, id, tokenManager.getToken()).getStatusCode();
+        } catch (Exception e) {
+            // no response, RestAssured throws IOExceptions undeclared
+            status = 0;
+        }
+        history.record(new HistoryEvent(process, HistoryEvent.Type.WRITE, id, start, history.now(), status, Map.of(field, value)));
+    }
+
+    private void delete(int process) {
+        Integer id = takeLive();
+        if (id == null) return;
+        long start = history.now();
+        int status;
+        try {
+            status = client.deleteBooking(id, tokenManager.getToken()).getStatusCode();
+        } catch (Exception e) {
+            status = 0;
+        }
+        HistoryEvent event = new HistoryEvent(process, HistoryEvent.Type.DELETE, id, start, history.now(), status, null);
+        history.record(event);
+        lock.lock();
+        try {
+            (event.isOk() || event.isIndeterminate() ? deleted : live).add(id);
+        } finally {
+            lock.unlock();
+        }
+        if (event.isOk()) create(process);
+    }
+
+    // A live booking, or now and then one that was deleted
+    private int target() {
+        lock.lock();
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<Integer> ids = !deleted.isEmpty() && random.nextDouble() < DELETED_SHARE ? deleted : live;
+            return ids.get(random.nextInt(ids.size()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Removes a live booking for deletion, one always stays so that the workers have a target
+    private Integer takeLive() {
+        lock.lock();
+        try {
+            if (live.size() <= 1) return null;
+            return live.remove(ThreadLocalRandom.current().nextInt(live.size()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Map<String, String> fields(Booking booking) {
+        // additionalneeds is optional, HashMap keeps the null
+        Map<String, String> values = new HashMap<>();
+        values.put("firstname", booking.getFirstname());
+        values.put("additionalneeds", booking.getAdditionalneeds());
+        return values;
+    }
+}
@@ -0,0 +1,42 @@
+package com.hotelbooking.api.stress;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadLongProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+@Getter
+@Builder(toBuilder = true)
+public class StressSettings {
+
+    // Workers sending requests back to back
+    private final int threads;
+
+    // Bookings the workers share, a few make every booking contended
+    private final int bookings;
+
+    private final Duration duration;
+
+    // Operation weights of LoadMix, only get, patch and delete, e.g. "get:50,patch:45,delete:5"
+    private final String mix;
+
+    // JSON lines, one operation each
+    private final String historyFile;
+
+    // Host to stress, e.g. a BookerStubServer of a test; null for the configured one (booker.host or booker.embedded)
+    private final String baseUrl;
+
+    public static StressSettings fromProperties() {
+        return StressSettings.builder()
+                .threads(loadIntProperty("stress.threads", 32))
+                .bookings(loadIntProperty("stress.bookings", 8))
+                .duration(Duration.ofSeconds(loadLongProperty("stress.duration.seconds", 30)))
+                .mix(loadProperty("stress.mix", "get:50,patch:45,delete:5"))
+                .historyFile(loadProperty("stress.history", "target/stress-history.jsonl"))
+                .build();
+    }
+}
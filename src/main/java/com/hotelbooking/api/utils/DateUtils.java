@@ -6,11 +6,18 @@ import java.time.format.DateTimeParseException;
 
 public class DateUtils {
 
-    public static final String TODAY = bookingDateFormat().format(LocalDate.now());
-    public static final String YESTERDAY = bookingDateFormat().format(LocalDate.now().minusDays(1));
+    // DateTimeFormatter is immutable and thread-safe, one instance is enough
+    private static final DateTimeFormatter BOOKING_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    public static final String TODAY = formatBookingDate(LocalDate.now());
+    public static final String YESTERDAY = formatBookingDate(LocalDate.now().minusDays(1));
 
     public static DateTimeFormatter bookingDateFormat(){
-        return DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        return BOOKING_DATE_FORMAT;
+    }
+
+    public static String formatBookingDate(LocalDate date) {
+        return BOOKING_DATE_FORMAT.format(date);
     }
 
     public static boolean isValidDate(String date) {
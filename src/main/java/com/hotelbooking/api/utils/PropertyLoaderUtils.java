@@ -6,17 +6,47 @@ import java.util.Properties;
 
 public class PropertyLoaderUtils {
 
-    public static String loadProperty(String propertyName) {
+    // read once, the file doesn't change while the JVM runs
+    private static final Properties FILE_PROPERTIES = loadFile();
+
+    private static Properties loadFile() {
         try (InputStream config = PropertyLoaderUtils.class.getClassLoader().getResourceAsStream("application.properties")) {
             if (config == null)
                 throw new ExceptionInInitializerError("ERROR: Property file not found!");
 
             Properties appProps = new Properties();
             appProps.load(config);
-            return appProps.getProperty(propertyName);
-            } catch (IOException e) {
-                throw new ExceptionInInitializerError("ERROR: Property file loading failed!");
-            }
+            return appProps;
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError("ERROR: Property file loading failed!");
+        }
+    }
+
+    public static String loadProperty(String propertyName) {
+        // system properties (-Dbooker.host=...) take precedence over the file, they are read on every call
+        String override = System.getProperty(propertyName);
+        if (override != null)
+            return override;
+
+        String value = FILE_PROPERTIES.getProperty(propertyName);
+        return value == null ? null : value.trim();
+    }
+
+    public static String loadProperty(String propertyName, String defaultValue) {
+        String value = loadProperty(propertyName);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    public static int loadIntProperty(String propertyName, int defaultValue) {
+        return Integer.parseInt(loadProperty(propertyName, String.valueOf(defaultValue)));
+    }
+
+    public static long loadLongProperty(String propertyName, long defaultValue) {
+        return Long.parseLong(loadProperty(propertyName, String.valueOf(defaultValue)));
+    }
+
+    public static boolean loadBooleanProperty(String propertyName) {
+        return Boolean.parseBoolean(loadProperty(propertyName));
     }
 
 }
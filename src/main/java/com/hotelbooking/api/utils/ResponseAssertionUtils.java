@@ -1,5 +1,6 @@
 package com.hotelbooking.api.utils;
 
+import com.hotelbooking.api.client.RequestLog;
 import io.restassured.response.Response;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -7,19 +8,30 @@ import static org.hamcrest.CoreMatchers.equalTo;
 public class ResponseAssertionUtils {
 
     public static Response assertStatusCode(Response response, int expectedStatusCode) {
-        return response.then()
-                .assertThat()
-                .statusCode(expectedStatusCode)
-                .extract()
-                .response();
+        try {
+            return response.then()
+                    .assertThat()
+                    .statusCode(expectedStatusCode)
+                    .extract()
+                    .response();
+        } catch (AssertionError e) {
+            // print the requests that led here, they are not logged as they happen (booker.log.mode)
+            RequestLog.dump();
+            throw e;
+        }
     }
 
     public static Response assertBodyEquals(Response response, String expectedBody) {
-        return response.then()
-                .assertThat()
-                .body(equalTo(expectedBody))
-                .extract()
-                .response();
+        try {
+            return response.then()
+                    .assertThat()
+                    .body(equalTo(expectedBody))
+                    .extract()
+                    .response();
+        } catch (AssertionError e) {
+            RequestLog.dump();
+            throw e;
+        }
     }
 
     // Assertion methods for specific status codes
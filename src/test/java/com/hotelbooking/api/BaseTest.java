@@ -1,24 +1,42 @@
 package com.hotelbooking.api;
 
-import com.github.javafaker.Faker;
+import com.hotelbooking.api.client.AuthTokenManager;
 import com.hotelbooking.api.client.BookingClient;
-import com.hotelbooking.api.model.Auth;
+import com.hotelbooking.api.fixtures.BookingFixturePool;
+import com.hotelbooking.api.fixtures.BookingGenerator;
 import com.hotelbooking.api.model.Booking;
 import com.hotelbooking.api.model.CreatedBooking;
+import io.restassured.response.Response;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.TestInfo;
+import org.junit.jupiter.api.extension.ExtendWith;
 
-import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
-import static com.hotelbooking.api.utils.DateUtils.bookingDateFormat;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
 import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
 
 
+@ExtendWith({FixturePoolExtension.class, RequestLogExtension.class, LatencyExtension.class})
 public abstract class BaseTest {
+    // Marks the bookings of this JVM run, tests run in parallel and must not see each other's data
+    private static final String RUN_MARKER = Long.toString(System.currentTimeMillis(), 36)
+            + Integer.toString(ThreadLocalRandom.current().nextInt(36 * 36), 36);
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+    private static BookingFixturePool fixturePool;
+
+    private final List<Integer> ownedBookings = new CopyOnWriteArrayList<>();
+    private CreatedBooking createdBooking;
+    private String testName;
+
     protected BookingClient client;
-    protected String token;
-    protected CreatedBooking createdBooking;
+    protected AuthTokenManager tokenManager;
 
     @BeforeAll
     public static void pingClient() {
@@ -26,50 +44,98 @@ public abstract class BaseTest {
     }
 
     @BeforeEach
-    public void setupClient() {
-        client = new BookingClient();
-        // Authorization by admin
-        String admin = loadProperty("admin.user");
-        String password = loadProperty("admin.password");
-        Auth session = new Auth(admin, password, null);
-        token = client.authenticateUser(session).getToken();
+    public void setupClient(TestInfo testInfo) {
+        testName = testInfo.getTestClass().map(Class::getSimpleName).orElse("") + "." + testInfo.getDisplayName();
+        FixtureEvent event = FixtureEvent.start("setup", testName);
+        try {
+            client = new BookingClient();
+            // Authorization by admin, the token is shared between tests and minted again only when it expires
+            tokenManager = AuthTokenManager.forCredentials(loadProperty("admin.user"), loadProperty("admin.password"));
+            tokenManager.getToken();
+        } finally {
+            // committed for failed fixtures as well, those are the slow ones
+            event.finish(0);
+        }
     }
 
-    @BeforeEach
-    public void setupData() {
-        // create a new booking
-        createdBooking = createBooking();
+    // The admin token, asked for on every call: one minted again after the TTL or a 403 is picked up mid-run
+    protected String token() {
+        return tokenManager.getToken();
+    }
+
+    // An authorized call, repeated once with a fresh token when the server rejects the current one with 403
+    protected Response authorized(Function<String, Response> call) {
+        return tokenManager.withToken(call);
+    }
+
+    // The booking of the test, taken from the fixture pool on first use, so tests that don't need it don't wait for it
+    protected CreatedBooking createdBooking() {
+        if (createdBooking == null) {
+            FixtureEvent event = FixtureEvent.start("acquire", testName);
+            try {
+                createdBooking = fixturePool().acquire();
+                ownedBookings.add(createdBooking.getBookingid());
+            } finally {
+                event.finish(createdBooking == null ? 0 : 1);
+            }
+        }
+        return createdBooking;
     }
 
     @AfterEach
     void cleanup() {
-        if (createdBooking != null) {
-            client.deleteBooking(createdBooking.getBookingid(), token);
+        FixtureEvent event = FixtureEvent.start("teardown", testName);
+        try {
+            // every booking the test created, including the extra ones, is deleted in the background
+            ownedBookings.forEach(fixturePool()::release);
+        } finally {
+            event.finish(ownedBookings.size());
+        }
+    }
+
+    private static synchronized BookingFixturePool fixturePool() {
+        if (fixturePool == null) {
+            fixturePool = new BookingFixturePool(
+                    new BookingClient(),
+                    AuthTokenManager.forCredentials(loadProperty("admin.user"), loadProperty("admin.password")),
+                    BaseTest::generateBooking,
+                    loadIntProperty("booker.fixtures.pool.size", 8),
+                    loadIntProperty("booker.fixtures.cleanup.threads", 4));
+        }
+        return fixturePool;
+    }
+
+    static synchronized void closeFixturePool() {
+        if (fixturePool != null) {
+            try {
+                // bookings left on the host fail the run
+                fixturePool.close();
+            } finally {
+                fixturePool = null;
+            }
         }
     }
 
     public CreatedBooking createBooking() {
-        Booking booking = generateBooking();
+        return createBooking(generateBooking());
+    }
 
-        CreatedBooking createdBooking = client.createBooking(booking, token);
+    public CreatedBooking createBooking(Booking booking) {
+        CreatedBooking createdBooking = client.createBooking(booking, token());
+        ownedBookings.add(createdBooking.getBookingid());
         return createdBooking;
     }
 
-    public Booking generateBooking() {
-        Booking.BookingDates bookingDate = Booking.BookingDates.builder()
-                .checkin(bookingDateFormat().format(LocalDate.now()))
-                .checkout(bookingDateFormat().format(LocalDate.now().plusDays(1)))
-                .build();
-
-        Faker faker =  new Faker();
-        return Booking.builder()
-                .firstname(faker.name().firstName())
-                .lastname(faker.name().lastName())
-                .totalprice(faker.number().numberBetween(1, 1000))
-                .depositpaid(true)
-                .bookingdates(bookingDate)
-                .additionalneeds("Breakfast")
-                .build();
+    // Unique per test data set, e.g. for a last name that no other test uses
+    public static String uniqueMarker() {
+        return RUN_MARKER + "-" + SEQUENCE.incrementAndGet();
+    }
+
+    // From the shared seeded generator, with the marker that keeps the booking apart from other tests
+    public static Booking generateBooking() {
+        Booking booking = BookingGenerator.shared().next();
+        booking.setLastname(booking.getLastname() + " " + uniqueMarker());
+        return booking;
     }
 
 }
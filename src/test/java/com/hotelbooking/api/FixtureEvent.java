@@ -0,0 +1,43 @@
+package com.hotelbooking.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Time a test spends in BaseTest's fixtures, next to the BookingOperationEvents of the calls they make
+@Name("booker.Fixture")
+@Label("Test Fixture")
+@Category("Booking API")
+@StackTrace(false)
+class FixtureEvent extends Event {
+
+    @Label("Phase")
+    @Description("setup, acquire or teardown")
+    private final String phase;
+
+    @Label("Test")
+    private final String test;
+
+    @Label("Bookings")
+    @Description("Acquired or released in this phase")
+    private int bookings;
+
+    FixtureEvent(String phase, String test) {
+        this.phase = phase;
+        this.test = test;
+    }
+
+    static FixtureEvent start(String phase, String test) {
+        FixtureEvent event = new FixtureEvent(phase, test);
+        event.begin();
+        return event;
+    }
+
+    void finish(int bookings) {
+        this.bookings = bookings;
+        commit();
+    }
+}
@@ -0,0 +1,17 @@
+package com.hotelbooking.api;
+
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import static org.junit.jupiter.api.extension.ExtensionContext.Namespace.GLOBAL;
+
+// Closes the shared fixture pool once all test classes are finished,
+// while the booking host (or the embedded server) is still there to delete the leftovers.
+public class FixturePoolExtension implements BeforeAllCallback {
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        context.getRoot().getStore(GLOBAL).getOrComputeIfAbsent(FixturePoolExtension.class.getName(),
+                key -> (ExtensionContext.Store.CloseableResource) BaseTest::closeFixturePool);
+    }
+}
@@ -0,0 +1,23 @@
+package com.hotelbooking.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Upper limit for a percentile of an operation's latency over the calls made by the annotated test class,
+// e.g. @LatencyBudget(operation = "PATCH /booking/{id}", percentile = 99, maxMillis = 300).
+// Checked by LatencyExtension when the class is finished, the class fails when a budget is exceeded.
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Repeatable(LatencyBudgets.class)
+public @interface LatencyBudget {
+
+    // as named by ClientMetrics: method and path with ids replaced by {id}
+    String operation();
+
+    double percentile() default 99;
+
+    long maxMillis();
+}
@@ -0,0 +1,13 @@
+package com.hotelbooking.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LatencyBudgets {
+
+    LatencyBudget[] value();
+}
@@ -0,0 +1,149 @@
+package com.hotelbooking.api;
+
+import com.hotelbooking.api.client.ConcurrencyLimiter;
+import com.hotelbooking.api.client.IdempotentCalls;
+import com.hotelbooking.api.metrics.ClientMetrics;
+import com.hotelbooking.api.metrics.LatencyBaseline;
+import com.hotelbooking.api.metrics.LatencyComparison;
+import com.hotelbooking.api.metrics.OperationStats;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+import static org.junit.jupiter.api.extension.ExtensionContext.Namespace.GLOBAL;
+
+// Counts the calls of each test class separately (the scope is set on the test's thread),
+// checks the class's @LatencyBudget annotations and writes the latency report once all classes are finished.
+// metrics.baseline.mode = record stores the run's distributions as the baseline,
+// compare fails the test classes whose calls got significantly slower than in the baseline.
+public class LatencyExtension implements BeforeAllCallback, BeforeEachCallback, AfterEachCallback, AfterAllCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(LatencyExtension.class);
+    private static final String PREVIOUS_SCOPE = "previousScope";
+
+    private static final String BASELINE_MODE = loadProperty("metrics.baseline.mode", "off").toLowerCase();
+    private static final String BASELINE_SCOPES = loadProperty("metrics.baseline.scopes", "com.hotelbooking.api.contracts.");
+    private static LatencyBaseline baseline;
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        context.getRoot().getStore(GLOBAL).getOrComputeIfAbsent(LatencyExtension.class.getName(),
+                key -> (ExtensionContext.Store.CloseableResource) LatencyExtension::writeReport);
+        enterScope(context);
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        enterScope(context);
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        exitScope(context);
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        exitScope(context);
+        String scope = context.getRequiredTestClass().getName();
+        Map<String, OperationStats> operations = ClientMetrics.operations(scope);
+        List<String> exceeded = new ArrayList<>();
+        for (LatencyBudget budget : AnnotationSupport.findRepeatableAnnotations(context.getRequiredTestClass(), LatencyBudget.class)) {
+            OperationStats stats = operations.get(budget.operation());
+            if (stats == null || stats.getCount() == 0) continue;
+            double actual = stats.getPercentileMillis(budget.percentile());
+            if (actual > budget.maxMillis())
+                exceeded.add(String.format("%s p%s = %.1f ms (budget %d ms, %d calls)", budget.operation(),
+                        BigDecimal.valueOf(budget.percentile()).stripTrailingZeros().toPlainString(),
+                        actual, budget.maxMillis(), stats.getCount()));
+        }
+        if (!exceeded.isEmpty())
+            throw new AssertionError("Latency budgets exceeded in " + scope + ": " + String.join("; ", exceeded));
+
+        if (BASELINE_MODE.equals("compare") && scope.startsWith(BASELINE_SCOPES) && baseline() != null) {
+            List<String> regressions = baseline().compare(scope, operations).stream()
+                    .filter(LatencyComparison::isRegression)
+                    .map(LatencyComparison::toString)
+                    .collect(Collectors.toList());
+            if (!regressions.isEmpty())
+                throw new AssertionError("Latency regressions against " + baselineFile() + ": " + String.join("; ", regressions));
+        }
+    }
+
+    private static void enterScope(ExtensionContext context) {
+        String previous = ClientMetrics.enterScope(context.getRequiredTestClass().getName());
+        if (previous != null) context.getStore(NAMESPACE).put(PREVIOUS_SCOPE, previous);
+    }
+
+    private static void exitScope(ExtensionContext context) {
+        ClientMetrics.exitScope(context.getStore(NAMESPACE).remove(PREVIOUS_SCOPE, String.class));
+    }
+
+    private static void writeReport() {
+        try {
+            ClientMetrics.writeReport(Paths.get(loadProperty("metrics.report", "target/surefire-reports/booker-latency.txt")));
+            System.out.println("Idempotent calls: " + IdempotentCalls.shared());
+            if (ConcurrencyLimiter.shared() != null) System.out.println("Concurrency limiter: " + ConcurrencyLimiter.shared());
+            if (BASELINE_MODE.equals("record")) {
+                LatencyBaseline.snapshot(BASELINE_SCOPES).write(baselineFile());
+                System.out.println("Latency baseline written to " + baselineFile());
+            } else if (BASELINE_MODE.equals("compare") && baseline() != null) {
+                writeComparison(Paths.get(loadProperty("metrics.baseline.report", "target/surefire-reports/booker-latency-baseline.txt")));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // All comparisons of the run and the test classes, the regressions of the classes have failed them already
+    private static void writeComparison(Path file) throws IOException {
+        List<LatencyComparison> comparisons = new ArrayList<>(baseline().compare(LatencyBaseline.RUN_SCOPE, ClientMetrics.operations()));
+        ClientMetrics.scopes().forEach((scope, operations) -> {
+            if (scope.startsWith(BASELINE_SCOPES)) comparisons.addAll(baseline().compare(scope, operations));
+        });
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            out.println("Latency compared with " + baselineFile());
+            comparisons.forEach(out::println);
+        }
+        comparisons.stream().filter(LatencyComparison::isRegression)
+                .forEach(regression -> System.out.println("Latency regression: " + regression));
+    }
+
+    private static synchronized LatencyBaseline baseline() {
+        if (baseline == null) {
+            Path file = baselineFile();
+            if (!Files.exists(file)) {
+                System.out.println("No latency baseline at " + file + ", run with -Dmetrics.baseline.mode=record first");
+                return null;
+            }
+            try {
+                baseline = LatencyBaseline.read(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return baseline;
+    }
+
+    private static Path baselineFile() {
+        return Paths.get(loadProperty("metrics.baseline.file", "perf/latency-baseline.hlog"));
+    }
+}
@@ -0,0 +1,26 @@
+package com.hotelbooking.api;
+
+import com.hotelbooking.api.client.RequestLog;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.TestWatcher;
+
+// Prints the requests of a failed test. Each test starts with an empty buffer,
+// so the dump shows only its own requests (the callbacks run on the test's thread).
+public class RequestLogExtension implements BeforeEachCallback, TestWatcher {
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        RequestLog.clear();
+    }
+
+    @Override
+    public void testFailed(ExtensionContext context, Throwable cause) {
+        RequestLog.dump(System.out, "failed " + context.getDisplayName());
+    }
+
+    @Override
+    public void testSuccessful(ExtensionContext context) {
+        RequestLog.clear();
+    }
+}
@@ -0,0 +1,113 @@
+package com.hotelbooking.api;
+
+import com.hotelbooking.api.sharding.ShardPlan;
+import com.hotelbooking.api.sharding.ShardReports;
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtensionConfigurationException;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.annotation.Testable;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.junit.platform.commons.support.HierarchyTraversalMode;
+import org.junit.platform.engine.UniqueId;
+
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadIntProperty;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+
+// Runs only the tests of shard shard.index (1..shard.count), balanced by the durations in the surefire reports
+// of a previous run (shard.timings, required with more than one shard). Registered for every test class through META-INF/services and
+// junit.jupiter.extensions.autodetection.enabled. Each parameterized case is placed on its own, with the
+// name surefire reports it under, e.g. testPartialUpdateBooking(BookingBuilder)[3].
+public class ShardExtension implements ExecutionCondition {
+
+    private static final int COUNT = loadIntProperty("shard.count", 1);
+    private static final int INDEX = loadIntProperty("shard.index", 1);
+    // where surefire writes the reports of this run
+    private static final Path OUTPUT_DIR = Paths.get("target", "surefire-reports");
+    private static final ConditionEvaluationResult UNSHARDED = ConditionEvaluationResult.enabled("not sharded");
+
+    private static ShardPlan plan;
+
+    @Override
+    public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+        if (COUNT <= 1) return UNSHARDED;
+        if (context.getTestClass().isEmpty()) return UNSHARDED;
+
+        String className = context.getRequiredTestClass().getName();
+        List<UniqueId.Segment> segments = UniqueId.parse(context.getUniqueId()).getSegments();
+        String type = segments.get(segments.size() - 1).getType();
+        int shard;
+        switch (type) {
+            case "class":
+            case "nested-class":
+                // a class with history can have cases in several shards, the others skip it with its @BeforeAll
+                // and BaseTest setup; a new class goes to one shard as a whole
+                if (!plan().isKnownClass(className)) {
+                    shard = plan().shardOfClass(className);
+                    break;
+                }
+                return plan().hasCasesInShard(className, testNames(context.getRequiredTestClass()), INDEX)
+                        ? ConditionEvaluationResult.enabled("has cases in shard " + INDEX + " of " + COUNT)
+                        : ConditionEvaluationResult.disabled(ShardReports.OTHER_SHARD + "other than " + INDEX + " of " + COUNT);
+            case "method":
+            case "test-factory":
+                shard = plan().shardOf(className, reportedName(context.getRequiredTestMethod()));
+                break;
+            case "test-template-invocation":
+                String invocation = segments.get(segments.size() - 1).getValue();
+                shard = plan().shardOf(className, reportedName(context.getRequiredTestMethod()) + "[" + invocation.substring(1) + "]");
+                break;
+            default:
+                // e.g. the container of a parameterized test, its invocations are placed one by one
+                return UNSHARDED;
+        }
+        return shard == INDEX
+                ? ConditionEvaluationResult.enabled("in shard " + INDEX + " of " + COUNT)
+                : ConditionEvaluationResult.disabled(ShardReports.OTHER_SHARD + shard + " of " + COUNT);
+    }
+
+    private static synchronized ShardPlan plan() {
+        if (plan == null) {
+            plan = ShardPlan.balance(ShardReports.readDurations(timingsDir()), COUNT);
+            System.out.println("Running shard " + INDEX + " of " + COUNT + ": " + plan.describe());
+        }
+        return plan;
+    }
+
+    // All shards have to balance the same durations, so they read a copy of the previous run's reports: this run's
+    // own output differs from machine to machine and changes while the tests run
+    private static Path timingsDir() {
+        String timings = loadProperty("shard.timings", "");
+        if (timings.isEmpty())
+            throw new ExtensionConfigurationException("shard.count = " + COUNT + " needs -Dshard.timings=<directory> with the surefire reports of a previous run");
+        Path dir = Paths.get(timings);
+        if (!Files.isDirectory(dir))
+            throw new ExtensionConfigurationException("shard.timings is not a directory: " + dir.toAbsolutePath());
+        if (dir.toAbsolutePath().normalize().equals(OUTPUT_DIR.toAbsolutePath().normalize()))
+            throw new ExtensionConfigurationException("shard.timings must not be the reports directory of this run: " + dir.toAbsolutePath());
+        return dir;
+    }
+
+    // The tests the class declares or inherits, parameterized ones without a case index
+    private static List<String> testNames(Class<?> testClass) {
+        return AnnotationSupport.findAnnotatedMethods(testClass, Testable.class, HierarchyTraversalMode.TOP_DOWN).stream()
+                .map(ShardExtension::reportedName)
+                .collect(Collectors.toList());
+    }
+
+    // The test name in surefire reports: the method name, with the simple parameter types when it has parameters
+    private static String reportedName(Method method) {
+        if (method.getParameterCount() == 0) return method.getName();
+        return method.getName() + Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+}
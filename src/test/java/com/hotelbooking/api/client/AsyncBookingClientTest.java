@@ -0,0 +1,61 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.BaseTest;
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncBookingClientTest extends BaseTest {
+
+    private final AsyncBookingClient asyncClient = new AsyncBookingClient(16);
+
+    @Test
+    void testConcurrentCreateGetDelete() {
+        // Many more operations than the concurrency limit, the client queues the rest
+        List<CompletableFuture<Void>> operations = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Booking booking = generateBooking();
+            operations.add(asyncClient.createBooking(booking, token())
+                    .thenCompose(created -> asyncClient.getBookingById(created.getBookingid())
+                            .thenAccept(retrieved -> assertEquals(booking.getLastname(), retrieved.getLastname()))
+                            .thenCompose(ignored -> asyncClient.deleteBooking(created.getBookingid(), token()))
+                            .thenAccept(response -> assertEquals(201, response.statusCode()))));
+        }
+
+        CompletableFuture.allOf(operations.toArray(new CompletableFuture[0])).join();
+        assertEquals(0, asyncClient.getInFlight());
+        assertEquals(0, asyncClient.getQueued());
+    }
+
+    @Test
+    void testPartialUpdateAndFilter() {
+        CreatedBooking created = createdBooking();
+        Booking patch = Booking.builder().firstname("Async").build();
+
+        HttpResponse<String> updated = asyncClient.partialUpdateBookingJson(patch, created.getBookingid(), token()).join();
+        assertEquals(200, updated.statusCode());
+
+        Map<String, Object> filters = new HashMap<>();
+        filters.put("firstname", "Async");
+        filters.put("lastname", created.getBooking().getLastname());
+        HttpResponse<String> ids = asyncClient.getBookingIds(filters).join();
+        assertEquals(200, ids.statusCode());
+        assertEquals("[{\"bookingid\":" + created.getBookingid() + "}]", ids.body().replace(" ", ""));
+    }
+
+    @Test
+    void testGetBookingById_NotExist() {
+        CompletionException error = assertThrows(CompletionException.class, () -> asyncClient.getBookingById(-1).join());
+        assertTrue(error.getCause() instanceof IllegalStateException);
+    }
+}
@@ -1,8 +1,54 @@
 package com.hotelbooking.api.client;
 
 import com.hotelbooking.api.BaseTest;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+import static com.hotelbooking.api.utils.ResponseAssertionUtils.assertSuccess;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class AuthTest extends BaseTest {
     // There could be a test for authorisation, clients options etc.
     // We don't need it right now, assuming that auth, createBooking and getBookingById are working properly.
+
+    @Test
+    void testTokenIsSharedBetweenCalls() {
+        // The same credentials give the same manager and the same token
+        AuthTokenManager sameCredentials = AuthTokenManager.forCredentials(loadProperty("admin.user"), loadProperty("admin.password"));
+        int minted = tokenManager.getMintCount();
+
+        assertSame(tokenManager, sameCredentials);
+        assertEquals(tokenManager.getToken(), sameCredentials.getToken());
+        assertEquals(minted, tokenManager.getMintCount());
+    }
+
+    @Test
+    void testTokenIsMintedAgainAfterTtl() {
+        AuthTokenManager manager = new AuthTokenManager(client, loadProperty("admin.user"), loadProperty("admin.password"), Duration.ofNanos(1));
+
+        String first = manager.getToken();
+        String second = manager.getToken();
+
+        assertNotEquals(first, second);
+        assertEquals(2, manager.getMintCount());
+    }
+
+    @Test
+    void testForbiddenResponseTriggersReauthentication() {
+        AuthTokenManager manager = new AuthTokenManager(client, loadProperty("admin.user"), loadProperty("admin.password"), Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+
+        // The first attempt uses a broken token, so the server answers 403 and the call is repeated with a new one
+        Response response = manager.withToken(token -> calls.getAndIncrement() == 0
+                ? client.deleteBooking(createdBooking().getBookingid(), token.substring(0, 8))
+                : client.deleteBooking(createdBooking().getBookingid(), token));
+
+        assertSuccess(response);
+        assertEquals(2, calls.get());
+        assertEquals(2, manager.getMintCount());
+    }
 }
@@ -0,0 +1,93 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.BaseTest;
+import com.hotelbooking.api.model.Booking;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingCacheTest extends BaseTest {
+
+    @Test
+    void testRepeatedReadIsServedFromCache() {
+        BookingClient cachingClient = new BookingClient(new BookingCache(100, Duration.ofMinutes(1)));
+        int id = createdBooking().getBookingid();
+
+        Booking first = cachingClient.getBookingById(id);
+        Booking second = cachingClient.getBookingById(id);
+
+        assertEquals(first, second);
+        assertEquals(1, cachingClient.getCache().getMisses());
+        assertEquals(1, cachingClient.getCache().getHits());
+        // callers get copies, changing one doesn't change the cache
+        second.setFirstname("Changed");
+        assertEquals(first.getFirstname(), cachingClient.getBookingById(id).getFirstname());
+    }
+
+    @Test
+    void testExpiredEntryIsRevalidated() {
+        // Zero TTL: every read asks the server, which answers 304 while the booking is unchanged
+        BookingClient cachingClient = new BookingClient(new BookingCache(100, Duration.ZERO));
+        int id = createdBooking().getBookingid();
+
+        Booking first = cachingClient.getBookingById(id);
+        Booking second = cachingClient.getBookingById(id);
+
+        assertEquals(first, second);
+        assertEquals(1, cachingClient.getCache().getMisses());
+        assertEquals(1, cachingClient.getCache().getRevalidations());
+        assertEquals(0, cachingClient.getCache().getHits());
+    }
+
+    @Test
+    void testPatchAndDeleteInvalidate() {
+        BookingClient cachingClient = new BookingClient(new BookingCache(100, Duration.ofMinutes(1)));
+        int id = createBooking().getBookingid();
+        cachingClient.getBookingById(id);
+
+        authorized(token -> cachingClient.partialUpdateBookingJson(Booking.builder().firstname("Patched").build(), id, token))
+                .then().statusCode(200);
+        assertEquals("Patched", cachingClient.getBookingById(id).getFirstname());
+        assertEquals(2, cachingClient.getCache().getMisses());
+
+        authorized(token -> cachingClient.deleteBooking(id, token)).then().statusCode(201);
+        assertEquals(0, cachingClient.getCache().size());
+        assertThrows(IllegalStateException.class, () -> cachingClient.getBookingById(id));
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        BookingClient cachingClient = new BookingClient(new BookingCache(1, Duration.ofMinutes(1)));
+        int first = createdBooking().getBookingid();
+        int second = createBooking().getBookingid();
+
+        cachingClient.getBookingById(first);
+        cachingClient.getBookingById(second);
+        cachingClient.getBookingById(first);
+
+        assertEquals(1, cachingClient.getCache().size());
+        assertEquals(3, cachingClient.getCache().getMisses());
+    }
+
+    @Test
+    void testInvalidationDropsReadsInFlightOfItsIdOnly() {
+        BookingCache cache = new BookingCache(1, Duration.ofMinutes(1));
+        Booking booking = generateBooking();
+
+        // a write of another id doesn't concern the read
+        long version = cache.version(1);
+        cache.invalidate(2);
+        cache.put(1, booking, "\"1\"", version);
+        assertEquals(booking, cache.get(1).booking);
+
+        // a write of the id does, even when its invalidation has been evicted since
+        version = cache.version(3);
+        cache.invalidate(3);
+        cache.invalidate(4);
+        cache.put(3, booking, "\"3\"", version);
+        assertNull(cache.get(3));
+        assertEquals(0, cache.size());
+    }
+}
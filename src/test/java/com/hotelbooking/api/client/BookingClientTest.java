@@ -0,0 +1,194 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.metrics.ClientMetrics;
+import com.hotelbooking.api.metrics.OperationStats;
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+import com.hotelbooking.api.server.BookerStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+// BookingClient against a stub server of its own, whatever booker.host and booker.embedded point to
+public class BookingClientTest {
+
+    private static BookerStubServer server;
+    private static BookingClient client;
+
+    @BeforeAll
+    static void startServer() {
+        server = new BookerStubServer(loadProperty("admin.user"), loadProperty("admin.password"));
+        server.seed();
+        server.start(0);
+        client = new BookingClient(server.getBaseUrl(), null);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void testGetBookingsByIdsKeepsMissingIds() {
+        // A booking deleted before the fetch is reported as 404 without failing the others
+        int deletedId = server.getStore().create(server.getStore().get(1));
+        assertTrue(server.getStore().delete(deletedId));
+
+        Map<Integer, BookingResult> results = client.getBookingsByIds(List.of(1, deletedId), 2)
+                .collect(Collectors.toMap(BookingResult::getId, Function.identity()));
+
+        assertEquals(2, results.size());
+        assertEquals(server.getStore().get(1).getLastname(), results.get(1).getBooking().getLastname());
+        assertTrue(results.get(deletedId).isNotFound());
+        assertNotNull(results.get(deletedId).getError());
+    }
+
+    @Test
+    void testGetBookingsByIdsReportsInvalidBodies() {
+        // no firstname, the body violates booking.json and the schema check throws a SchemaViolationException
+        int invalid = server.getStore().create(Booking.builder().lastname("Invalid").build());
+
+        Map<Integer, BookingResult> results = client.getBookingsByIds(List.of(1, invalid), 2)
+                .collect(Collectors.toMap(BookingResult::getId, Function.identity()));
+        assertTrue(results.get(1).isFound(), () -> results.get(1).toString());
+        assertFalse(results.get(invalid).isFound());
+        assertInstanceOf(SchemaViolationException.class, results.get(invalid).getError());
+        assertInstanceOf(SchemaViolationException.class, client.fetchBookingById(invalid).getError());
+    }
+
+    @Test
+    void testStreamBookingIds() {
+        // Streaming gives the same ids as the materialized list
+        Map<String, Object> filters = Map.of("lastname", "Brown");
+        int[] expected = Arrays.stream(client.getBookingIds(filters).as(CreatedBooking[].class))
+                .mapToInt(CreatedBooking::getBookingid)
+                .toArray();
+        assertEquals(2, expected.length);
+
+        try (IntStream bookingIds = client.streamBookingIds(filters)) {
+            assertArrayEquals(expected, bookingIds.toArray());
+        }
+        try (IntStream bookingIds = client.streamBookingIds(Map.of())) {
+            assertTrue(bookingIds.anyMatch(id -> id == 1));
+        }
+    }
+
+    @Test
+    void testBlockingCallsFanOutOnExecutor() {
+        // the same blocking call many times at once, on virtual threads with booker.executor = virtual
+        List<CompletableFuture<Booking>> bookings = IntStream.range(0, 50)
+                .mapToObj(i -> client.async(() -> client.getBookingById(1)))
+                .collect(Collectors.toList());
+
+        bookings.forEach(booking -> assertEquals(server.getStore().get(1), booking.join()));
+    }
+
+    @Test
+    void testManyBlockingCallsAtOnce() {
+        // every call blocks until all of them run, so the executor holds them all at the same time;
+        // they then wait for a request slot of the limiter and a pooled connection
+        int calls = 500;
+        CountDownLatch started = new CountDownLatch(calls);
+        List<CompletableFuture<Booking>> bookings = IntStream.range(0, calls)
+                .mapToObj(i -> client.async(() -> {
+                    started.countDown();
+                    try {
+                        if (!started.await(30, TimeUnit.SECONDS)) throw new IllegalStateException("Calls didn't run at once");
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                    return client.getBookingById(i % 10 + 1);
+                }))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < calls; i++) {
+            assertEquals(server.getStore().get(i % 10 + 1), bookings.get(i).join());
+        }
+    }
+
+    @Test
+    void testStreamBookingIdsIsMeasured() {
+        String scope = BookingClientTest.class.getName() + ".stream";
+        String previous = ClientMetrics.enterScope(scope);
+        try {
+            try (IntStream ids = client.streamBookingIds(Map.of())) {
+                assertTrue(ids.count() >= 10);
+            }
+            // closed before the end of the list
+            try (IntStream ids = client.streamBookingIds(Map.of())) {
+                assertTrue(ids.findFirst().isPresent());
+            }
+        } finally {
+            ClientMetrics.exitScope(previous);
+        }
+        OperationStats stats = ClientMetrics.operations(scope).get("GET /booking");
+        assertEquals(2, stats.getCount());
+        assertTrue(stats.getResponseBytes() > 0);
+    }
+
+    @Test
+    void testFiltersAgreeWithLocalIndex() {
+        // a server of its own, the other tests of the class create bookings concurrently and the sets below are exact
+        BookerStubServer own = new BookerStubServer(loadProperty("admin.user"), loadProperty("admin.password"));
+        own.seed();
+        own.start(0);
+        try {
+            // bookings with one last name, checking in a day apart, next to the seeded ones (ids 1-10)
+            LocalDate checkin = LocalDate.parse("2020-03-01");
+            int[] indexed = new int[3];
+            for (int i = 0; i < 3; i++) {
+                indexed[i] = own.getStore().create(Booking.builder()
+                        .firstname(i == 0 ? "Sally" : "Index")
+                        .lastname("Indexed")
+                        .totalprice(100)
+                        .depositpaid(true)
+                        .bookingdates(Booking.BookingDates.builder()
+                                .checkin(checkin.plusDays(i).toString())
+                                .checkout(checkin.plusDays(i + 3).toString())
+                                .build())
+                        .build());
+            }
+            BookingClient ownClient = new BookingClient(own.getBaseUrl(), null);
+            BookingIndex index = BookingIndex.load(ownClient);
+            assertEquals(13, index.size());
+
+            // checkin strictly after, checkout strictly before the dates
+            Map<Map<String, Object>, BookingIdSet> expected = new LinkedHashMap<>();
+            expected.put(Map.of("lastname", "Indexed"), BookingIdSet.of(indexed));
+            expected.put(Map.of("firstname", "Sally", "lastname", "Indexed"), BookingIdSet.of(indexed[0]));
+            expected.put(Map.of("lastname", "Indexed", "checkin", "2020-03-01"), BookingIdSet.of(indexed[1], indexed[2]));
+            expected.put(Map.of("lastname", "Indexed", "checkout", "2020-03-05"), BookingIdSet.of(indexed[0]));
+            expected.put(Map.of("lastname", "Indexed", "checkin", "2020-02-29", "checkout", "2020-03-06"),
+                    BookingIdSet.of(indexed[0], indexed[1]));
+            expected.put(Map.of("lastname", "Indexed", "checkout", "2020-03-04"), BookingIdSet.empty());
+            expected.put(Map.of("checkin", "2020-03-01"), BookingIdSet.of(indexed[1], indexed[2]));
+            // the earliest seeded checkout is 2019-01-01
+            expected.put(Map.of("checkout", "2019-01-01"), BookingIdSet.empty());
+            // seeded checkins from February, checkouts until May
+            expected.put(Map.of("checkin", "2018-01-01", "checkout", "2019-06-01"), BookingIdSet.of(2, 3, 4, 5));
+            expected.put(Map.of("firstname", "Sally"), BookingIdSet.of(1, 8, indexed[0]));
+            expected.forEach((filters, ids) -> {
+                assertEquals(ids, index.expectedIds(filters), () -> "index " + filters);
+                assertEquals(ids, ownClient.snapshotBookingIds(filters), () -> "server " + filters);
+            });
+        } finally {
+            own.stop();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.hotelbooking.api.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingIdReaderTest {
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testReadIds() {
+        try (IntStream ids = BookingIdReader.stream(body("[{\"bookingid\":3}, {\"bookingid\": 1},\n{\"bookingid\":2}]"))) {
+            assertArrayEquals(new int[]{3, 1, 2}, ids.toArray());
+        }
+    }
+
+    @Test
+    void testSkipOtherFields() {
+        // The booking field is skipped as a whole, even though it's nested
+        String json = "[{\"booking\":{\"firstname\":\"Jim\",\"bookingdates\":{\"checkin\":\"2018-01-01\"}},\"bookingid\":7}]";
+        try (IntStream ids = BookingIdReader.stream(body(json))) {
+            assertArrayEquals(new int[]{7}, ids.toArray());
+        }
+    }
+
+    @Test
+    void testEmptyList() {
+        try (IntStream ids = BookingIdReader.stream(body("[]"))) {
+            assertEquals(0, ids.count());
+        }
+    }
+
+    @Test
+    void testLargeList() {
+        // Long lists are read lazily, the sum is computed without an array of ids
+        int size = 500_000;
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= size; i++) {
+            if (i > 1) json.append(',');
+            json.append("{\"bookingid\":").append(i).append('}');
+        }
+        try (IntStream ids = BookingIdReader.stream(body(json.append(']').toString()))) {
+            assertEquals((long) size * (size + 1) / 2, ids.asLongStream().sum());
+        }
+    }
+
+    @Test
+    void testNotAList() {
+        assertThrows(IllegalStateException.class, () -> BookingIdReader.stream(body("{\"reason\":\"Not Found\"}")));
+        assertThrows(IllegalStateException.class, () -> BookingIdReader.stream(body("[{\"id\":1}]")).toArray());
+    }
+}
@@ -0,0 +1,49 @@
+package com.hotelbooking.api.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingIdSetTest {
+
+    @Test
+    void testSortedAndUnique() {
+        BookingIdSet ids = BookingIdSet.of(5, 3, 9, 3, 1, 5, 5);
+        assertArrayEquals(new int[]{1, 3, 5, 9}, ids.toArray());
+        assertTrue(ids.hasDuplicates());
+        assertArrayEquals(new int[]{3, 5}, ids.getDuplicates());
+        assertTrue(ids.contains(9));
+        assertFalse(ids.contains(4));
+    }
+
+    @Test
+    void testSetOperations() {
+        BookingIdSet left = BookingIdSet.of(1, 2, 3, 5, 8);
+        BookingIdSet right = BookingIdSet.of(2, 3, 4, 8, 13);
+        assertEquals(BookingIdSet.of(1, 2, 3, 4, 5, 8, 13), left.union(right));
+        assertEquals(BookingIdSet.of(2, 3, 8), left.intersection(right));
+        assertEquals(BookingIdSet.of(1, 5), left.minus(right));
+        assertEquals(BookingIdSet.empty(), left.intersection(BookingIdSet.empty()));
+    }
+
+    @Test
+    void testDiff() {
+        BookingIdSet before = BookingIdSet.of(1, 2, 3);
+        BookingIdSet after = BookingIdSet.of(2, 3, 4, 5);
+        BookingIdSet.Diff diff = before.diff(after);
+        assertEquals(BookingIdSet.of(4, 5), diff.getAdded());
+        assertEquals(BookingIdSet.of(1), diff.getRemoved());
+        assertTrue(after.diff(after).isEmpty());
+    }
+
+    @Test
+    void testLargeStream() {
+        // 200k ids in reverse order with every id sent twice
+        BookingIdSet ids = BookingIdSet.of(IntStream.range(0, 400_000).map(i -> 199_999 - i / 2));
+        assertEquals(200_000, ids.size());
+        assertEquals(200_000, ids.getDuplicates().length);
+        assertEquals(0, ids.stream().findFirst().getAsInt());
+    }
+}
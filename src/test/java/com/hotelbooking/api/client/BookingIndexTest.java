@@ -0,0 +1,76 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.model.Booking;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingIndexTest {
+
+    private static Booking booking(String firstname, String lastname, String checkin, String checkout) {
+        return Booking.builder()
+                .firstname(firstname)
+                .lastname(lastname)
+                .totalprice(100)
+                .depositpaid(true)
+                .bookingdates(Booking.BookingDates.builder().checkin(checkin).checkout(checkout).build())
+                .build();
+    }
+
+    private static BookingIndex index() {
+        Map<Integer, Booking> bookings = new HashMap<>();
+        bookings.put(1, booking("Sally", "Brown", "2018-01-01", "2018-01-05"));
+        bookings.put(2, booking("Jim", "Brown", "2018-02-01", "2018-02-03"));
+        bookings.put(3, booking("Sally", "Wilson", "2018-03-01", "2018-03-02"));
+        // unparseable dates match no date filter
+        bookings.put(4, booking("Jim", "Wilson", "0NaN-aN-aN", "0NaN-aN-aN"));
+        bookings.put(5, booking("Mary", "Brown", "2018-02-01", "2018-02-10"));
+        return BookingIndex.of(bookings);
+    }
+
+    private static Map<String, Object> filters(String... pairs) {
+        Map<String, Object> filters = new HashMap<>();
+        for (int i = 0; i < pairs.length; i += 2) {
+            filters.put(pairs[i], pairs[i + 1]);
+        }
+        return filters;
+    }
+
+    @Test
+    void testNameFilters() {
+        BookingIndex index = index();
+        assertEquals(BookingIdSet.of(1, 2, 3, 4, 5), index.expectedIds(filters()));
+        assertEquals(BookingIdSet.of(1, 3), index.expectedIds(filters("firstname", "Sally")));
+        assertEquals(BookingIdSet.of(1), index.expectedIds(filters("firstname", "Sally", "lastname", "Brown")));
+        assertEquals(BookingIdSet.empty(), index.expectedIds(filters("firstname", "Nobody")));
+        // names are exact
+        assertEquals(BookingIdSet.empty(), index.expectedIds(filters("lastname", "brown")));
+        // unknown filters are ignored
+        assertEquals(BookingIdSet.of(2, 4), index.expectedIds(filters("firstname", "Jim", "unknownFilter", "x")));
+    }
+
+    @Test
+    void testDateFiltersAreExclusive() {
+        BookingIndex index = index();
+        // checkin strictly after, checkout strictly before
+        assertEquals(BookingIdSet.of(3), index.expectedIds(filters("checkin", "2018-02-01")));
+        assertEquals(BookingIdSet.of(2, 3, 5), index.expectedIds(filters("checkin", "2018-01-31")));
+        assertEquals(BookingIdSet.of(1), index.expectedIds(filters("checkout", "2018-02-03")));
+        assertEquals(BookingIdSet.of(2, 5), index.expectedIds(filters("checkin", "2018-01-01", "checkout", "2018-03-01")));
+        assertEquals(BookingIdSet.of(2, 5), index.expectedIds(filters("lastname", "Brown", "checkin", "2018-01-01", "checkout", "2018-02-28")));
+        // an unparseable filter date is ignored
+        assertEquals(BookingIdSet.of(1, 2, 3, 4, 5), index.expectedIds(filters("checkin", "yesterday")));
+    }
+
+    @Test
+    void testSnapshotKeepsBookings() {
+        BookingIndex index = index();
+        assertEquals(5, index.size());
+        assertEquals(booking("Jim", "Brown", "2018-02-01", "2018-02-03"), index.get(2));
+        assertNull(index.get(4).getBookingdates().getCheckin());
+        assertNull(index.get(42));
+    }
+}
@@ -0,0 +1,45 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.BaseTest;
+import com.hotelbooking.api.fixtures.BookingGenerator;
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingXmlCodecTest extends BaseTest {
+
+    @Test
+    void testRoundTripFromParallelThreads() {
+        BookingGenerator generator = new BookingGenerator(11);
+        List<Booking> bookings = generator.next(500);
+        bookings.add(generator.next(BookingGenerator.EdgeCase.UNICODE));
+        bookings.add(generator.next(BookingGenerator.EdgeCase.SPECIAL_CHARACTERS));
+
+        List<Booking> decoded = bookings.parallelStream()
+                .map(booking -> BookingXmlCodec.readBooking(BookingXmlCodec.toXml(booking)))
+                .collect(Collectors.toList());
+
+        assertEquals(bookings, decoded);
+        Booking.BookingDates dates = bookings.get(0).getBookingdates();
+        assertEquals(dates, BookingXmlCodec.readBookingDates(BookingXmlCodec.toXml(dates)));
+    }
+
+    @Test
+    void testExternalEntitiesAreRejected() {
+        String xml = "<?xml version=\"1.0\"?><!DOCTYPE booking [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>"
+                + "<booking><firstname>&secret;</firstname></booking>";
+        assertThrows(IllegalArgumentException.class, () -> BookingXmlCodec.readBooking(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testGetBookingByIdXml() {
+        CreatedBooking created = createdBooking();
+        assertEquals(client.getBookingById(created.getBookingid()), client.getBookingByIdXml(created.getBookingid()));
+    }
+}
@@ -0,0 +1,138 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.BaseTest;
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.specification.RequestSpecification;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CassetteTest extends BaseTest {
+
+    // Nothing listens there, a replayed request that reached the network would fail
+    private static final String NO_SERVER = "http://127.0.0.1:9";
+
+    private static RequestSpecification given(String baseUrl, CassetteFilter filter) {
+        return RestAssured.given().baseUri(baseUrl).filter(filter).accept(ContentType.JSON);
+    }
+
+    @Test
+    void testReplayInRecordedOrder(@TempDir Path directory) {
+        Path file = directory.resolve("test.cassette");
+        int id = createBooking().getBookingid();
+        String lastname = client.getBookingById(id).getLastname();
+
+        try (Cassette cassette = Cassette.recordTo(file)) {
+            CassetteFilter recorder = CassetteFilter.recording(cassette);
+            given(BookingClient.baseUrl(), recorder).get("/booking/" + id).then().statusCode(200);
+            given(BookingClient.baseUrl(), recorder).contentType(ContentType.JSON).cookie("token", token())
+                    .body(Booking.builder().firstname("Recorded").build())
+                    .patch("/booking/" + id).then().statusCode(200);
+            given(BookingClient.baseUrl(), recorder).get("/booking/" + id).then().statusCode(200);
+            given(BookingClient.baseUrl(), recorder).get("/booking/-1").then().statusCode(404);
+        }
+
+        Cassette cassette = Cassette.replayFrom(file);
+        assertEquals(4, cassette.size());
+        CassetteFilter replayer = CassetteFilter.replaying(cassette);
+
+        // same requests: the responses come back in the recorded order
+        Booking before = given(NO_SERVER, replayer).get("/booking/" + id).as(Booking.class);
+        assertEquals(lastname, before.getLastname());
+        assertNotEquals("Recorded", before.getFirstname());
+        given(NO_SERVER, replayer).contentType(ContentType.JSON)
+                .body(Booking.builder().firstname("Recorded").build())
+                .patch("/booking/" + id).then().statusCode(200);
+        assertEquals("Recorded", given(NO_SERVER, replayer).get("/booking/" + id).as(Booking.class).getFirstname());
+        given(NO_SERVER, replayer).get("/booking/-1").then().statusCode(404).contentType(ContentType.TEXT);
+
+        // a PATCH with other data is matched by its path, an unknown id by the operation
+        given(NO_SERVER, replayer).contentType(ContentType.JSON)
+                .body(Booking.builder().firstname("Other").build())
+                .patch("/booking/" + id).then().statusCode(200);
+        given(NO_SERVER, replayer).get("/booking/123456789").then().statusCode(200);
+        // nothing similar was recorded
+        assertThrows(IllegalStateException.class, () -> given(NO_SERVER, replayer).delete("/booking/" + id));
+    }
+
+    @Test
+    void testReplayOfJavaHttpClientCalls(@TempDir Path directory) {
+        // streamBookingIds, getBookingsByIds and AsyncBookingClient don't send through RestAssured filters
+        Path file = directory.resolve("http-client.cassette");
+        CreatedBooking created = createBooking();
+        int id = created.getBookingid();
+        String lastname = created.getBooking().getLastname();
+        Map<String, Object> filters = Map.of("lastname", lastname);
+
+        int[] recordedIds;
+        try (Cassette cassette = Cassette.recordTo(file)) {
+            CassetteFilter recorder = CassetteFilter.recording(cassette);
+            BookingClient recording = new BookingClient(BookingClient.baseUrl(), null, recorder);
+            try (IntStream ids = recording.streamBookingIds(filters)) {
+                recordedIds = ids.toArray();
+            }
+            assertTrue(recording.getBookingsByIds(List.of(id), 1).allMatch(BookingResult::isFound));
+            new AsyncBookingClient(BookingClient.baseUrl(), 1, recorder).getBookingById(id).join();
+        }
+
+        CassetteFilter replayer = CassetteFilter.replaying(Cassette.replayFrom(file));
+        BookingClient replaying = new BookingClient(NO_SERVER, null, replayer);
+        try (IntStream ids = replaying.streamBookingIds(filters)) {
+            assertArrayEquals(recordedIds, ids.toArray());
+        }
+        BookingResult result = replaying.getBookingsByIds(List.of(id), 1).findFirst().orElseThrow();
+        assertTrue(result.isFound(), result::toString);
+        assertEquals(lastname, result.getBooking().getLastname());
+        assertEquals(lastname, new AsyncBookingClient(NO_SERVER, 1, replayer).getBookingById(id).join().getLastname());
+    }
+
+    @Test
+    void testAuthCredentialsAreNotRecorded(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("auth.cassette");
+        try (Cassette cassette = Cassette.recordTo(file)) {
+            cassette.record("POST", "/auth", "", "application/json", Map.of("Cookie", "token=secret-cookie"),
+                    "{\"username\":\"admin\",\"password\":\"secret-password\"}".getBytes(StandardCharsets.UTF_8),
+                    new Cassette.Recorded(200, "HTTP/1.1 200 OK", Map.of(), "{\"token\":\"secret-token\"}".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        String written = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        assertFalse(written.contains("secret"), written);
+        // the redacted token still reads as an auth response
+        Cassette.Recorded replayed = Cassette.replayFrom(file).replay("POST", "/auth", "", "application/json",
+                "{\"username\":\"admin\",\"password\":\"secret-password\"}".getBytes(StandardCharsets.UTF_8));
+        assertEquals("{\"token\":\"<redacted>\"}", new String(replayed.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testTruncatedCassetteIsReported(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("truncated.cassette");
+        try (Cassette cassette = Cassette.recordTo(file)) {
+            cassette.record("GET", "/booking/1", "", "application/json", Map.of(), new byte[0],
+                    new Cassette.Recorded(200, "HTTP/1.1 200 OK", Map.of(), "{}".getBytes(StandardCharsets.UTF_8)));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> Cassette.replayFrom(file));
+        assertTrue(error.getMessage().contains("truncated"), error::getMessage);
+    }
+
+    @Test
+    void testReplayNeedsSequentialRun() {
+        CassetteFilter.requireSequentialRun(0, false);
+        assertThrows(IllegalStateException.class, () -> CassetteFilter.requireSequentialRun(8, false));
+        assertThrows(IllegalStateException.class, () -> CassetteFilter.requireSequentialRun(0, true));
+    }
+}
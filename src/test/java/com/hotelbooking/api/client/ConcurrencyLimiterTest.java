@@ -0,0 +1,164 @@
+package com.hotelbooking.api.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimiterTest {
+
+    private static ConcurrencyLimiter limiter(int initial, int max, int maxQueue, long maxWaitMillis) {
+        return new ConcurrencyLimiter(initial, 1, max, 0.5, 4, 200, maxQueue, maxWaitMillis);
+    }
+
+    private static void sleep(long millis) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void testLimitGrowsWhileUsedAndBacksOffOncePerRound() {
+        ConcurrencyLimiter limiter = limiter(4, 100, 10, 1000);
+        // rounds of requests at the limit, answered in time
+        for (int round = 0; round < 10; round++) {
+            List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                permits.add(limiter.acquire());
+            }
+            permits.forEach(permit -> permit.release(200));
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown >= 6, () -> "limit " + grown);
+
+        // the requests of one round all see the overload, the limit is halved once
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            permits.add(limiter.acquire());
+        }
+        permits.forEach(permit -> permit.release(503));
+        assertEquals(grown / 2, limiter.getLimit(), 1);
+        assertEquals(1, limiter.getDecreases());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testCallsOverTheLimitWaitInBoundedQueue() {
+        // long enough that the queued async call doesn't time out on a busy machine before the slot is free
+        ConcurrencyLimiter limiter = limiter(1, 1, 1, 500);
+        ConcurrencyLimiter.Permit first = limiter.acquire();
+
+        // queued until the slot is free
+        CompletableFuture<ConcurrencyLimiter.Permit> second = limiter.acquireAsync();
+        assertFalse(second.isDone());
+        assertEquals(1, limiter.getQueueDepth());
+        // the queue holds one call only
+        assertThrows(IllegalStateException.class, limiter::acquire);
+
+        first.release(200);
+        assertEquals(0, limiter.getQueueDepth());
+        assertEquals(1, limiter.getInFlight());
+
+        // no slot within the wait
+        long start = System.nanoTime();
+        assertThrows(IllegalStateException.class, limiter::acquire);
+        assertTrue(System.nanoTime() - start >= 450_000_000L);
+        CompletionException timeout = assertThrows(CompletionException.class, () -> limiter.acquireAsync().join());
+        assertTrue(timeout.getCause() instanceof IllegalStateException);
+        assertEquals(3, limiter.getRejected());
+
+        second.join().release(200);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testLatencyIsComparedPerOperation() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 100, 0.5, 4, 1, 10, 1000);
+        // a full window of instant responses of one operation
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire("GET /booking/{id}").release(200);
+        }
+        // another operation that is slower by nature isn't an overload
+        for (int i = 0; i < 5; i++) {
+            ConcurrencyLimiter.Permit permit = limiter.acquire("GET /booking");
+            sleep(5);
+            permit.release(200);
+        }
+        assertEquals(0, limiter.getDecreases());
+        // the same delay in the fast operation is
+        ConcurrencyLimiter.Permit permit = limiter.acquire("GET /booking/{id}");
+        sleep(5);
+        permit.release(200);
+        assertEquals(1, limiter.getDecreases());
+    }
+
+    @Test
+    void testInterruptedWaiterLeavesTheQueue() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 1, 10, 10_000);
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+        CompletableFuture<Throwable> interrupted = new CompletableFuture<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire().release(200);
+                interrupted.complete(null);
+            } catch (Throwable e) {
+                interrupted.complete(Thread.currentThread().isInterrupted() ? e : null);
+            }
+        });
+        waiter.start();
+        CompletableFuture<ConcurrencyLimiter.Permit> next = CompletableFuture.supplyAsync(limiter::acquire);
+        while (limiter.getQueueDepth() < 2) sleep(1);
+
+        waiter.interrupt();
+        assertInstanceOf(IllegalStateException.class, interrupted.get(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getQueueDepth());
+        // the slot goes to the remaining waiter
+        held.release(200);
+        next.get(5, TimeUnit.SECONDS).release(200);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testBlockingAndAsyncCallsGetSlotsInTheOrderTheyCame() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 0.5, 4, 200, 10, 10_000);
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+        CompletableFuture<ConcurrencyLimiter.Permit> blocking = CompletableFuture.supplyAsync(limiter::acquire);
+        while (limiter.getQueueDepth() < 1) sleep(1);
+        CompletableFuture<ConcurrencyLimiter.Permit> async = limiter.acquireAsync();
+
+        held.release(200);
+        ConcurrencyLimiter.Permit first = blocking.get(5, TimeUnit.SECONDS);
+        assertFalse(async.isDone());
+        first.release(200);
+        async.get(5, TimeUnit.SECONDS).release(200);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testGrownLimitWakesAWaiterPerSlot() throws Exception {
+        ConcurrencyLimiter limiter = limiter(1, 10, 10, 10_000);
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+        // a thread each, the common pool may have only one
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        List<CompletableFuture<ConcurrencyLimiter.Permit>> waiters = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            waiters.add(CompletableFuture.supplyAsync(limiter::acquire, threads));
+        }
+        while (limiter.getQueueDepth() < 2) sleep(1);
+
+        // a response at the limit of 1 takes it to 2, both waiters start
+        held.release(200);
+        assertEquals(2, limiter.getLimit());
+        for (CompletableFuture<ConcurrencyLimiter.Permit> waiter : waiters) {
+            waiter.get(5, TimeUnit.SECONDS).release(200);
+        }
+        assertEquals(0, limiter.getInFlight());
+        threads.shutdown();
+    }
+}
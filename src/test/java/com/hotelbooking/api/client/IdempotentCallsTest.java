@@ -0,0 +1,112 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.metrics.MetricsRegistry;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every test has its own IdempotentCalls, retry budget and metrics: the fake operations stay out of the run's report
+// and the shared budget of the other tests
+public class IdempotentCallsTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    private IdempotentCalls calls(double hedgePercentile, long minHedgeDelayMillis, int maxAttempts, RetryBudget budget) {
+        return new IdempotentCalls(hedgePercentile, minHedgeDelayMillis, 20, maxAttempts, 1, budget, metrics);
+    }
+
+    @Test
+    void testRetriesUntilSuccess() {
+        IdempotentCalls calls = calls(0, 0, 3, new RetryBudget(0.1, 10));
+        AtomicInteger sent = new AtomicInteger();
+
+        Response response = calls.call("TEST /retried", () -> response(sent.incrementAndGet() < 3 ? 503 : 200));
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals(3, sent.get());
+        assertEquals(2, calls.getRetryBudget().getSpent());
+    }
+
+    @Test
+    void testBudgetLimitsRetries() {
+        RetryBudget budget = new RetryBudget(0.1, 1);
+        IdempotentCalls calls = calls(0, 0, 5, budget);
+        AtomicInteger sent = new AtomicInteger();
+
+        assertEquals(500, calls.call("TEST /failing", () -> {
+            sent.incrementAndGet();
+            return response(500);
+        }).getStatusCode());
+        // the one saved retry, then the budget refuses
+        assertEquals(2, sent.get());
+        assertEquals(1, budget.getRejected());
+        // ten calls earn one retry again
+        for (int i = 0; i < 10; i++) budget.deposit();
+        assertEquals(1.0, budget.getAvailable(), 0.001);
+    }
+
+    @Test
+    void testSlowRequestIsHedged() {
+        for (int i = 0; i < 20; i++) {
+            metrics.record("TEST /hedged", TimeUnit.MILLISECONDS.toNanos(1), 200, 0, 0);
+        }
+        // a delay that the primary attempt starts within on a loaded single core, else the hedge could start first,
+        // hang as the first request, and the primary would win
+        IdempotentCalls calls = calls(99, 200, 1, new RetryBudget(0.1, 10));
+        AtomicInteger sent = new AtomicInteger();
+
+        Response response = calls.call("TEST /hedged", () -> {
+            // the first request hangs, the hedge answers
+            if (sent.incrementAndGet() == 1) hang(5000);
+            return response(200);
+        });
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals(1, calls.getHedgesFired());
+        assertEquals(1, calls.getHedgesWon());
+    }
+
+    @Test
+    void testWaitForSlotIsNotHedged() {
+        for (int i = 0; i < 20; i++) {
+            metrics.record("TEST /queued", TimeUnit.MILLISECONDS.toNanos(1), 200, 0, 0);
+        }
+        IdempotentCalls calls = calls(99, 100, 1, new RetryBudget(0.1, 10));
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, 0.5, 4, 200, 10, 5000);
+        ConcurrencyLimiter.Permit held = limiter.acquire();
+        CompletableFuture.runAsync(() -> {
+            // the request waits far longer than the hedge delay for its slot, then it's answered at once
+            hang(500);
+            held.release(200);
+        });
+
+        // built ahead, the first response takes a while to build on a cold JVM
+        Response answer = response(200);
+        Response response = calls.call("TEST /queued", () -> {
+            limiter.acquire("TEST /queued").release(200);
+            return answer;
+        });
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals(0, calls.getHedgesFired());
+    }
+
+    // parkNanos alone may return at once, e.g. on a pool thread with an unpark left over from an earlier task
+    private static void hang(long millis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (long left = deadline - System.nanoTime(); left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+
+    private static Response response(int status) {
+        return new ResponseBuilder().setStatusCode(status).setStatusLine("HTTP/1.1 " + status).setBody("").build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.BaseTest;
+import com.hotelbooking.api.model.Booking;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.hotelbooking.api.utils.ResponseAssertionUtils.assertMethodNotAllowed;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+public class RequestLogTest extends BaseTest {
+
+    @BeforeEach
+    void onlyInFailuresMode() {
+        assumeFalse(RequestLog.isLogAll(), "exchanges are not kept with booker.log.mode = all");
+    }
+
+    @Test
+    void testDumpKeepsOnlyLatestExchanges() {
+        int id = createdBooking().getBookingid();
+        RequestLog.clear();
+        for (int i = 0; i < 40; i++) {
+            client.getBookingById(id);
+        }
+        authorized(token -> client.partialUpdateBookingJson(Booking.builder().firstname("Logged").build(), id, token));
+
+        String dump = dump();
+        // default booker.log.buffer.size is 32
+        assertTrue(dump.contains("last 32 of 41 requests"), dump);
+        assertTrue(dump.contains("Request body: {\"firstname\":\"Logged\"}"), dump);
+        assertTrue(dump.contains("\"firstname\":\"Logged\""), dump);
+        // dumped exchanges are dropped
+        assertEquals("", dump());
+    }
+
+    @Test
+    void testFailedAssertionDumps() {
+        // The booking exists, so the assertion fails and prints the PATCH
+        int id = createdBooking().getBookingid();
+        assertThrows(AssertionError.class,
+                () -> assertMethodNotAllowed(authorized(token -> client.partialUpdateBookingJson(Booking.builder().build(), id, token))));
+        // printed exchanges are dropped from the buffer
+        assertEquals("", dump());
+    }
+
+    private static String dump() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RequestLog.dump(new PrintStream(out, true, StandardCharsets.UTF_8), null);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
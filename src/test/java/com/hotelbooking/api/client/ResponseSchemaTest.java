@@ -0,0 +1,61 @@
+package com.hotelbooking.api.client;
+
+import com.hotelbooking.api.model.Booking;
+import com.hotelbooking.api.model.CreatedBooking;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseSchemaTest {
+
+    private static final String BOOKING = "{\"firstname\":\"Jim\",\"lastname\":\"Brown\",\"totalprice\":111,\"depositpaid\":true,"
+            + "\"bookingdates\":{\"checkin\":\"2018-01-01\",\"checkout\":\"2019-01-01\"},\"additionalneeds\":\"Breakfast\"}";
+
+    @Test
+    void testValidResponses() {
+        assertEquals("Jim", ResponseSchema.BOOKING.read(BOOKING, Booking.class).getFirstname());
+        CreatedBooking created = ResponseSchema.CREATED_BOOKING.read("{\"bookingid\":7,\"booking\":" + BOOKING + "}", CreatedBooking.class);
+        assertEquals(7, created.getBookingid());
+        assertEquals("Brown", created.getBooking().getLastname());
+    }
+
+    @Test
+    void testViolations() {
+        // the price as a string, and a booking without dates inside a created booking ($ref to booking.json)
+        SchemaViolationException error = assertThrows(SchemaViolationException.class,
+                () -> ResponseSchema.BOOKING.read(BOOKING.replace("111", "\"111\""), Booking.class));
+        assertTrue(error.getMessage().contains("/totalprice"), error.getMessage());
+        String withoutDates = BOOKING.replaceAll(",\"bookingdates\":\\{[^}]*}", "");
+        assertThrows(SchemaViolationException.class,
+                () -> ResponseSchema.CREATED_BOOKING.read("{\"bookingid\":7,\"booking\":" + withoutDates + "}", CreatedBooking.class));
+        assertThrows(SchemaViolationException.class, () -> ResponseSchema.AUTH.read("{\"reason\":\"Bad credentials\"}", Object.class));
+    }
+
+    @Test
+    void testStreamedListValidation() {
+        int size = 100_000;
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= size; i++) {
+            json.append("{\"bookingid\":").append(i).append("},");
+        }
+        String valid = json.substring(0, json.length() - 1) + "]";
+        try (IntStream ids = BookingIdReader.stream(body(valid), true)) {
+            assertEquals(size, ids.count());
+        }
+        // the last element is checked like the first
+        String invalid = json.append("{\"bookingid\":\"x\"}]").toString();
+        assertThrows(SchemaViolationException.class, () -> {
+            try (IntStream ids = BookingIdReader.stream(body(invalid), true)) {
+                ids.count();
+            }
+        });
+    }
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
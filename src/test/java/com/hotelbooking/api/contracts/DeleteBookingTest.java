@@ -13,26 +13,26 @@ public class DeleteBookingTest extends BaseTest {
 
     @Test
     void testDeleteBooking_Success() {
-        assertSuccess(client.deleteBooking(createdBooking.getBookingid(), token));
+        assertSuccess(authorized(token -> client.deleteBooking(createdBooking().getBookingid(), token)));
         // try to get the deleted booking by id
-        assertThrows(IllegalStateException.class, () -> client.getBookingById(createdBooking.getBookingid()));
+        assertThrows(IllegalStateException.class, () -> client.getBookingById(createdBooking().getBookingid()));
     }
 
     @Test
     void testDeleteBooking_NotExist() {
         // The server response code is 405, but in this case it's better to return 404.
-        assertMethodNotAllowed(client.deleteBooking(-1, token));
+        assertMethodNotAllowed(authorized(token -> client.deleteBooking(-1, token)));
     }
 
     @ParameterizedTest
     @NullSource
     @EmptySource
     void testDeleteBooking_NoToken(String token) {
-        assertForbidden(client.deleteBooking(createdBooking.getBookingid(), token));
+        assertForbidden(client.deleteBooking(createdBooking().getBookingid(), token));
     }
 
     @Test
     void testDeleteBooking_InvalidToken() {
-        assertForbidden(client.deleteBooking(createdBooking.getBookingid(),  token.substring(0,8)));
+        assertForbidden(client.deleteBooking(createdBooking().getBookingid(),  token().substring(0,8)));
     }
 }
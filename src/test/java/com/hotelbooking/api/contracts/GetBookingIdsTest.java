@@ -1,16 +1,19 @@
 package com.hotelbooking.api.contracts;
 
 import com.hotelbooking.api.BaseTest;
+import com.hotelbooking.api.client.BookingIdSet;
+import com.hotelbooking.api.client.BookingIndex;
 import com.hotelbooking.api.model.Booking;
 import com.hotelbooking.api.model.CreatedBooking;
 import io.restassured.response.Response;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.stream.Collectors;
 
 import static com.hotelbooking.api.utils.DateUtils.YESTERDAY;
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,18 +31,17 @@ public class GetBookingIdsTest extends BaseTest {
         // Additional assertions based on the expected response
         assertTrue(bookings.length > 1); // Assuming the response contains more then 1 bookings
         // Check if all booking IDs are unique
-        Set<Integer> bookingIds = new HashSet<>();
-        for (CreatedBooking booking : bookings) {
-            assertTrue(bookingIds.add(booking.getBookingid()));
-        }
+        BookingIdSet bookingIds = BookingIdSet.of(Arrays.stream(bookings).mapToInt(CreatedBooking::getBookingid));
+        assertFalse(bookingIds.hasDuplicates(), () -> "Duplicated ids: " + Arrays.toString(bookingIds.getDuplicates()));
+        assertEquals(bookings.length, bookingIds.size());
     }
 
     @Test
     void testGetBookingIdsWithFilters() {
         // Positive scenario: with filters
         Map<String, Object> filters = new HashMap<>();
-        filters.put("firstname", createdBooking.getBooking().getFirstname());
-        filters.put("lastname", createdBooking.getBooking().getLastname());
+        filters.put("firstname", createdBooking().getBooking().getFirstname());
+        filters.put("lastname", createdBooking().getBooking().getLastname());
 
         Response response = client.getBookingIds(filters);
         response.then().statusCode(200);
@@ -49,21 +51,19 @@ public class GetBookingIdsTest extends BaseTest {
         // Assuming the response contains only our booking
         assertEquals(1, bookings.length);
         // Check if all bookings have the expected firstname and lastname
-        for (CreatedBooking booking : bookings) {
-            Booking retrievedBooking = client.getBookingById(booking.getBookingid());
-            assertEquals(createdBooking.getBooking().getFirstname(), retrievedBooking.getFirstname());
-            assertEquals(createdBooking.getBooking().getLastname(), retrievedBooking.getLastname());
-        }
+        client.getBookingsByIds(bookingIds(bookings)).forEach(result -> {
+            assertTrue(result.isFound(), result::toString);
+            assertEquals(createdBooking().getBooking().getFirstname(), result.getBooking().getFirstname());
+            assertEquals(createdBooking().getBooking().getLastname(), result.getBooking().getLastname());
+        });
     }
 
     @Test
     void testGetBookingIdsWithInvalidFilter() {
         // Negative scenario: with filters
+        int ownBookingId = createdBooking().getBookingid();
         // Get all bookings without filters
-        CreatedBooking[] bookingsExpected = client
-                .getBookingIds(new HashMap<>())
-                .as(CreatedBooking[].class);
-        int expectedSize = bookingsExpected.length;
+        BookingIdSet bookingsExpected = client.snapshotBookingIds(new HashMap<>());
 
         // Create unknown filter
         Map<String, Object> filters = new HashMap<>();
@@ -75,8 +75,13 @@ public class GetBookingIdsTest extends BaseTest {
         CreatedBooking[] bookings = response.as(CreatedBooking[].class);
         assertNotNull(bookings);
 
-        // Assert that the result is more or equal to the full list from a moment ago
-        assertTrue(bookings.length >= expectedSize);
+        // Assert that the filter is ignored: the result contains the full list from a moment ago.
+        // Other tests create and delete bookings concurrently, so a missing id must belong to a booking deleted meanwhile.
+        BookingIdSet bookingIds = BookingIdSet.of(Arrays.stream(bookings).mapToInt(CreatedBooking::getBookingid));
+        assertFalse(bookingIds.hasDuplicates());
+        assertTrue(bookingIds.contains(ownBookingId));
+        bookingsExpected.diff(bookingIds).getRemoved().stream().forEach(removedId ->
+                assertThrows(IllegalStateException.class, () -> client.getBookingById(removedId)));
         //assertEquals(0, bookings.length); // Assuming no bookings match the invalid filter, but it works vice versa
     }
 
@@ -85,28 +90,69 @@ public class GetBookingIdsTest extends BaseTest {
     // That's not true, it works only with a greater dates, not include the same date.
     @Test
     void testGetBookingIdsWitFilterByMultipleData() {
+        // Own bookings share the last name, only the one with the today's check in date matches the filter
+        String lastname = createdBooking().getBooking().getLastname();
+        Booking pastBooking = generateBooking().toBuilder()
+                .lastname(lastname)
+                .bookingdates(Booking.BookingDates.builder().checkin("2018-01-01").checkout("2018-01-02").build())
+                .build();
+        int pastBookingId = createBooking(pastBooking).getBookingid();
+
         Map<String, Object> filters = new HashMap<>();
         // Set filter = yesterday to find everything starting from today
         filters.put("checkin", YESTERDAY);
+        // Limit the result to the bookings of this test, other tests update dates concurrently
+        filters.put("lastname", lastname);
 
         Response response = client.getBookingIds(filters);
         response.then().statusCode(200);
 
         CreatedBooking[] bookings = response.as(CreatedBooking[].class);
         assertNotNull(bookings);
-        // Assuming there should be at least one paid booking that we created before tests
+        // Assuming there should be at least one booking that we created before tests
         assertTrue(bookings.length > 0);
 
         // Keep track of booking IDs for uniqueness check
-        Set<Integer> bookingIds = new HashSet<>();
+        BookingIdSet bookingIds = BookingIdSet.of(Arrays.stream(bookings).mapToInt(CreatedBooking::getBookingid));
+        assertFalse(bookingIds.hasDuplicates());
 
-        // Check if all bookings have correct Check In date and each ID is unique
-        for (CreatedBooking booking : bookings) {
-            Booking retrievedBooking = client.getBookingById(booking.getBookingid());
-
-            LocalDate actualCkeckin = LocalDate.parse(retrievedBooking.getBookingdates().getCheckin());
+        // Check if all bookings have correct Check In date, fetched concurrently
+        client.getBookingsByIds(bookingIds(bookings)).forEach(result -> {
+            assertTrue(result.isFound(), result::toString);
+            LocalDate actualCkeckin = LocalDate.parse(result.getBooking().getBookingdates().getCheckin());
             assertTrue(LocalDate.parse(YESTERDAY).compareTo(actualCkeckin) < 0);
-            assertTrue(bookingIds.add(booking.getBookingid()));
+        });
+        assertTrue(bookingIds.contains(createdBooking().getBookingid()));
+        assertFalse(bookingIds.contains(pastBookingId));
+    }
+
+    @Test
+    void testFiltersAgreeWithLocalIndex() {
+        // own bookings with one last name, checking in a day apart; BookingClientTest covers the other filters on a stub
+        String lastname = createdBooking().getBooking().getLastname();
+        Map<Integer, Booking> ownBookings = new HashMap<>();
+        ownBookings.put(createdBooking().getBookingid(), createdBooking().getBooking());
+        LocalDate checkin = LocalDate.parse("2020-03-01");
+        for (int i = 0; i < 3; i++) {
+            CreatedBooking created = createBooking(generateBooking().toBuilder()
+                    .lastname(lastname)
+                    .bookingdates(Booking.BookingDates.builder()
+                            .checkin(checkin.plusDays(i).toString())
+                            .checkout(checkin.plusDays(i + 3).toString())
+                            .build())
+                    .build());
+            ownBookings.put(created.getBookingid(), created.getBooking());
+        }
+        // the last name limits the answer to own bookings, which no other test changes
+        BookingIndex index = BookingIndex.of(ownBookings);
+        for (Map<String, Object> filters : List.of(
+                Map.<String, Object>of("lastname", lastname),
+                Map.<String, Object>of("lastname", lastname, "checkin", "2020-03-01", "checkout", "2020-03-06"))) {
+            assertEquals(index.expectedIds(filters), client.snapshotBookingIds(filters), filters::toString);
         }
     }
+
+    private static List<Integer> bookingIds(CreatedBooking[] bookings) {
+        return Arrays.stream(bookings).map(CreatedBooking::getBookingid).collect(Collectors.toList());
+    }
 }
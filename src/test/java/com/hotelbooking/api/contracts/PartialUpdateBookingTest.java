@@ -1,6 +1,7 @@
 package com.hotelbooking.api.contracts;
 
 import com.hotelbooking.api.BaseTest;
+import com.hotelbooking.api.LatencyBudget;
 import com.hotelbooking.api.model.Booking;
 import com.hotelbooking.api.model.CreatedBooking;
 import io.restassured.http.ContentType;
@@ -22,6 +23,9 @@ import static com.hotelbooking.api.utils.ResponseAssertionUtils.assertMethodNotA
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+// Generous enough for the round trip to the public host and for a loaded build agent running the tests in parallel
+@LatencyBudget(operation = "PATCH /booking/{id}", percentile = 99, maxMillis = 2000)
+@LatencyBudget(operation = "GET /booking/{id}", percentile = 99, maxMillis = 2000)
 public class PartialUpdateBookingTest extends BaseTest {
     private static final LocalDate NOW = LocalDate.now();
 
@@ -30,12 +34,12 @@ public class PartialUpdateBookingTest extends BaseTest {
     public void testPartialUpdateBooking(Booking.BookingBuilder updatedBookingBuilder) {
         // Perform partial update
         Booking updatedBooking = updatedBookingBuilder.build();
-        client.partialUpdateBookingJson(updatedBooking, createdBooking.getBookingid(), token)
+        authorized(token -> client.partialUpdateBookingJson(updatedBooking, createdBooking().getBookingid(), token))
                 .then()
                 .statusCode(200);
 
         // Retrieve the updated booking by id
-        Booking retrievedBooking = client.getBookingById(createdBooking.getBookingid());
+        Booking retrievedBooking = client.getBookingById(createdBooking().getBookingid());
 
         // Assert that the values were updated
         assertEquals(updatedBooking.getFirstname(), retrievedBooking.getFirstname());
@@ -44,8 +48,8 @@ public class PartialUpdateBookingTest extends BaseTest {
         assertEquals(updatedBooking.getAdditionalneeds(), retrievedBooking.getAdditionalneeds());
 
         // Assert that the values not updated remain the same
-        assertEquals(createdBooking.getBooking().getDepositpaid(), retrievedBooking.getDepositpaid());
-        assertEquals(createdBooking.getBooking().getBookingdates(), retrievedBooking.getBookingdates());
+        assertEquals(createdBooking().getBooking().getDepositpaid(), retrievedBooking.getDepositpaid());
+        assertEquals(createdBooking().getBooking().getBookingdates(), retrievedBooking.getBookingdates());
     }
 
     private static Stream<Booking.BookingBuilder> generateSuccessData() {
@@ -99,11 +103,11 @@ public class PartialUpdateBookingTest extends BaseTest {
         Booking updatedBooking = new Booking();
         updatedBooking.setBookingdates(bookingDate);
 
-        client.partialUpdateBookingJson(updatedBooking, createdBooking.getBookingid(), token)
+        authorized(token -> client.partialUpdateBookingJson(updatedBooking, createdBooking().getBookingid(), token))
                 .then().statusCode(200);
 
         // Retrieve the updated booking by id
-        Booking retrievedBooking = client.getBookingById(createdBooking.getBookingid());
+        Booking retrievedBooking = client.getBookingById(createdBooking().getBookingid());
 
         // Check the values of the saved dates
         if (isValidDate(bookingDate.getCheckin()) && isValidDate(bookingDate.getCheckout()))
@@ -160,8 +164,8 @@ public class PartialUpdateBookingTest extends BaseTest {
         updatedBooking.setBookingdates(bookingDate);
 
         // Get a Json response and check content type
-        Response response = client
-                .partialUpdateBookingJson(updatedBooking, createdBooking.getBookingid(), token)
+        Response response = authorized(token -> client
+                .partialUpdateBookingJson(updatedBooking, createdBooking().getBookingid(), token))
                 .then()
                 .assertThat()
                 .contentType(ContentType.JSON)// assert expected content type;
@@ -171,7 +175,7 @@ public class PartialUpdateBookingTest extends BaseTest {
         Booking retrievedBooking = response.as(Booking.class);
 
         // Assert that the new values were returned and readable
-        assertRetriedValues(createdBooking, updatedBooking, retrievedBooking);
+        assertRetriedValues(createdBooking(), updatedBooking, retrievedBooking);
 
     }
 
@@ -203,8 +207,8 @@ public class PartialUpdateBookingTest extends BaseTest {
         updatedBooking.setBookingdates(bookingDate);
 
         // Get XML response and check content type
-        Response response = client
-                .partialUpdateBookingXml(updatedBooking, createdBooking.getBookingid(), token)
+        Response response = authorized(token -> client
+                .partialUpdateBookingXml(updatedBooking, createdBooking().getBookingid(), token))
                 .then()
                 .assertThat()
                 .contentType(ContentType.XML) // assert expected content type;
@@ -214,7 +218,7 @@ public class PartialUpdateBookingTest extends BaseTest {
         Booking retrievedBooking = response.as(Booking.class);
 
         // assert that the new values were returned and readable
-        assertRetriedValues(createdBooking, updatedBooking, retrievedBooking);
+        assertRetriedValues(createdBooking(), updatedBooking, retrievedBooking);
     }
 
     @Test
@@ -224,7 +228,7 @@ public class PartialUpdateBookingTest extends BaseTest {
         updatedBooking.setTotalprice(111);
 
         // The server response code is 405, but in this case it's better to return 404.
-        assertMethodNotAllowed(client.partialUpdateBookingJson(updatedBooking, -1, token));
+        assertMethodNotAllowed(authorized(token -> client.partialUpdateBookingJson(updatedBooking, -1, token)));
     }
 
     @ParameterizedTest
@@ -244,6 +248,6 @@ public class PartialUpdateBookingTest extends BaseTest {
         Booking updatedBooking = new Booking();
         updatedBooking.setTotalprice(111);
 
-        assertForbidden(client.partialUpdateBookingJson(updatedBooking, 1, token.substring(0,8)));
+        assertForbidden(client.partialUpdateBookingJson(updatedBooking, 1, token().substring(0,8)));
     }
 }
@@ -0,0 +1,49 @@
+package com.hotelbooking.api.fixtures;
+
+import com.hotelbooking.api.model.Booking;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.hotelbooking.api.utils.DateUtils.isValidDate;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookingGeneratorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void testSameSeedSameBookings() {
+        List<Booking> first = new BookingGenerator(7, TODAY).next(100);
+        // order of the calls doesn't matter, the n-th booking depends only on the seed and n
+        List<Booking> second = new BookingGenerator(7, TODAY).stream(100).parallel().collect(Collectors.toList());
+
+        assertEquals(first, second);
+        assertNotEquals(first, new BookingGenerator(8, TODAY).next(100));
+    }
+
+    @Test
+    void testValidBookings() {
+        new BookingGenerator(1, TODAY).stream(1000).forEach(booking -> {
+            assertFalse(booking.getFirstname().isEmpty());
+            assertTrue(booking.getTotalprice() >= 1 && booking.getTotalprice() < 1000);
+            LocalDate checkin = LocalDate.parse(booking.getBookingdates().getCheckin());
+            LocalDate checkout = LocalDate.parse(booking.getBookingdates().getCheckout());
+            assertFalse(checkin.isBefore(TODAY));
+            assertTrue(checkout.isAfter(checkin));
+        });
+    }
+
+    @Test
+    void testEdgeCases() {
+        BookingGenerator generator = new BookingGenerator(3, TODAY);
+        for (int i = 0; i < 20; i++) {
+            Booking invalid = generator.next(BookingGenerator.EdgeCase.INVALID_DATES);
+            assertFalse(isValidDate(invalid.getBookingdates().getCheckin()) && isValidDate(invalid.getBookingdates().getCheckout()));
+            assertTrue(generator.next(BookingGenerator.EdgeCase.LONG_STRINGS).getLastname().length() >= 1000);
+            assertTrue(generator.next(BookingGenerator.EdgeCase.UNICODE).getFirstname().chars().anyMatch(c -> c > 127));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.hotelbooking.api.load;
+
+import com.hotelbooking.api.server.BookerStubServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    // a stub server per run, whatever booker.host points to: load tests never go to a shared host
+    private BookerStubServer server;
+
+    @BeforeEach
+    void startServer() {
+        server = new BookerStubServer(loadProperty("admin.user"), loadProperty("admin.password"));
+        server.start(0);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    private LoadSettings.LoadSettingsBuilder shortRun() {
+        return LoadSettings.builder()
+                .rate(100)
+                .concurrency(8)
+                .warmup(Duration.ZERO)
+                .duration(Duration.ofSeconds(2))
+                .mix("create:20,get:40,list:5,patch:25,delete:10")
+                .initialBookings(10)
+                .baseUrl(server.getBaseUrl());
+    }
+
+    @Test
+    void testOpenModel(@TempDir Path reportDir) throws Exception {
+        LoadSettings settings = shortRun().model(LoadSettings.Model.OPEN).build();
+        LoadReport report = new LoadGenerator(settings).run();
+
+        // Requests are sent at the fixed rate, so the total count is known in advance
+        long total = 0;
+        for (LoadMix.Operation operation : LoadMix.Operation.values()) {
+            total += report.getLatencies(operation).getTotalCount();
+        }
+        assertEquals(200, total);
+        // the run deletes what it created
+        assertEquals(0, server.getStore().size());
+
+        Path file = reportDir.resolve("load-report.txt");
+        report.write(file.toString(), settings);
+        assertTrue(Files.readString(file).contains("p99.9 ms"));
+    }
+
+    @Test
+    void testClosedModel() {
+        LoadReport report = new LoadGenerator(shortRun().model(LoadSettings.Model.CLOSED).build()).run();
+
+        assertTrue(report.getLatencies(LoadMix.Operation.GET).getTotalCount() > 0);
+        assertEquals(0, report.getErrors(LoadMix.Operation.CREATE));
+        assertEquals(0, server.getStore().size());
+    }
+
+    @Test
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> shortRun().model(LoadSettings.Model.OPEN).rate(0).build());
+        // the closed model has no rate
+        assertEquals(0, shortRun().model(LoadSettings.Model.CLOSED).rate(0).build().getRate());
+        assertThrows(IllegalArgumentException.class, () -> shortRun().model(LoadSettings.Model.CLOSED).concurrency(0).build());
+        assertThrows(IllegalArgumentException.class, () -> shortRun().model(LoadSettings.Model.OPEN).duration(Duration.ZERO).build());
+        assertThrows(IllegalArgumentException.class, () -> shortRun().model(LoadSettings.Model.OPEN).warmup(Duration.ofSeconds(-1)).build());
+    }
+
+    @Test
+    void testMixParsing() {
+        LoadMix mix = LoadMix.parse("get:1");
+        assertEquals(LoadMix.Operation.GET, mix.next());
+        assertThrows(IllegalArgumentException.class, () -> LoadMix.parse("get"));
+    }
+}
@@ -0,0 +1,52 @@
+package com.hotelbooking.api.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClientMetricsTest {
+
+    @Test
+    void testOperationName() {
+        assertEquals("GET /booking/{id}", ClientMetrics.operationName("GET", "/booking/42"));
+        assertEquals("PATCH /booking/{id}", ClientMetrics.operationName("PATCH", "/booking/-1"));
+        assertEquals("GET /booking", ClientMetrics.operationName("GET", "/booking?checkin=2024-01-01"));
+        assertEquals("POST /auth", ClientMetrics.operationName("POST", "/auth"));
+    }
+
+    @Test
+    void testScopedStats() {
+        // a registry of its own, the fake operation stays out of the run's report
+        MetricsRegistry metrics = new MetricsRegistry();
+        String scope = ClientMetricsTest.class.getName() + ".scoped";
+        String previous = metrics.enterScope(scope);
+        try {
+            for (int i = 1; i <= 100; i++) {
+                metrics.record("TEST /scoped", TimeUnit.MILLISECONDS.toNanos(i), i % 10 == 0 ? 404 : 200, 10, 100);
+            }
+            metrics.record("TEST /scoped", TimeUnit.MILLISECONDS.toNanos(1), 500, 10, 0);
+        } finally {
+            metrics.exitScope(previous);
+        }
+        // recorded without a scope, so not counted for it
+        metrics.record("TEST /scoped", TimeUnit.SECONDS.toNanos(5), 200, 0, 0);
+
+        OperationStats stats = metrics.operations(scope).get("TEST /scoped");
+        assertEquals(101, stats.getCount());
+        assertEquals(10, stats.getClientErrors());
+        assertEquals(1, stats.getServerErrors());
+        assertEquals(99, stats.getPercentileMillis(99), 1);
+        assertEquals(100, stats.getMaxMillis(), 1);
+        assertEquals(102, metrics.operations().get("TEST /scoped").getCount());
+        assertNull(ClientMetrics.operations().get("TEST /scoped"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        metrics.writeReport(new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains(scope));
+    }
+}
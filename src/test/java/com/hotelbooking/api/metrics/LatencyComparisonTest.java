@@ -0,0 +1,82 @@
+package com.hotelbooking.api.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyComparisonTest {
+
+    // Log-normal latencies around the median, in microseconds
+    private static Histogram latencies(long seed, int count, double medianMicros) {
+        Random random = new Random(seed);
+        Histogram histogram = new Histogram(1, OperationStats.HIGHEST_TRACKABLE_MICROS, 3);
+        for (int i = 0; i < count; i++) {
+            histogram.recordValue((long) (medianMicros * Math.exp(0.3 * random.nextGaussian())));
+        }
+        return histogram;
+    }
+
+    @Test
+    void testSameDistributionIsNoRegression() {
+        LatencyComparison comparison = LatencyComparison.compare("GET /booking/{id}",
+                latencies(1, 2000, 20_000), latencies(2, 2000, 20_000), 0.01, 0.1, 20);
+        assertFalse(comparison.isRegression(), comparison::toString);
+        assertTrue(comparison.getPValue() > 0.01, comparison::toString);
+    }
+
+    @Test
+    void testSlowerDistributionIsRegression() {
+        LatencyComparison comparison = LatencyComparison.compare("GET /booking/{id}",
+                latencies(1, 500, 20_000), latencies(2, 500, 30_000), 0.01, 0.1, 20);
+        assertTrue(comparison.isRegression(), comparison::toString);
+        assertTrue(comparison.getPValue() < 0.001, comparison::toString);
+    }
+
+    @Test
+    void testSmallShiftIsNotFlagged() {
+        // 3% slower on many calls: significant, but below the minimal change
+        LatencyComparison comparison = LatencyComparison.compare("GET /booking/{id}",
+                latencies(1, 50_000, 20_000), latencies(2, 50_000, 20_600), 0.01, 0.1, 20);
+        assertTrue(comparison.getPValue() < 0.01, comparison::toString);
+        assertFalse(comparison.isRegression(), comparison::toString);
+    }
+
+    @Test
+    void testFasterIsNoRegression() {
+        LatencyComparison comparison = LatencyComparison.compare("GET /booking/{id}",
+                latencies(1, 500, 30_000), latencies(2, 500, 20_000), 0.01, 0.1, 20);
+        assertFalse(comparison.isRegression());
+        assertTrue(comparison.getPValue() > 0.99, comparison::toString);
+    }
+
+    @Test
+    void testBaselineRoundTrip(@TempDir Path directory) throws IOException {
+        // a registry of its own: in the run's one the samples would go into a recorded baseline
+        MetricsRegistry metrics = new MetricsRegistry();
+        String scope = LatencyComparisonTest.class.getName();
+        String previous = metrics.enterScope(scope);
+        try {
+            for (int i = 1; i <= 50; i++) {
+                metrics.record("TEST /baseline", i * 1_000_000L, 200, 0, 0);
+            }
+        } finally {
+            metrics.exitScope(previous);
+        }
+
+        Path file = directory.resolve("baseline.hlog");
+        LatencyBaseline.snapshot(metrics, scope).write(file);
+        LatencyBaseline baseline = LatencyBaseline.read(file);
+
+        assertEquals(50, baseline.get(scope, "TEST /baseline").getTotalCount());
+        assertEquals(50, baseline.get(LatencyBaseline.RUN_SCOPE, "TEST /baseline").getTotalCount());
+        assertFalse(baseline.compare(scope, Map.of("TEST /baseline", metrics.operations(scope).get("TEST /baseline")))
+                .get(0).isRegression());
+    }
+}
@@ -0,0 +1,95 @@
+package com.hotelbooking.api.sharding;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardPlanTest {
+
+    @Test
+    void testLongestFirstBalancesShards() {
+        Map<String, Double> durations = new HashMap<>();
+        double[] seconds = {8, 7, 6, 5, 4, 3, 2, 2, 1};
+        for (int i = 0; i < seconds.length; i++) {
+            durations.put(ShardPlan.key("Suite", "test(String)[" + i + "]"), seconds[i]);
+        }
+
+        ShardPlan plan = ShardPlan.balance(durations, 3);
+
+        // 38 seconds in total: LPT gets 13/13/12
+        double[] expected = plan.getExpectedSeconds();
+        assertEquals(38, expected[0] + expected[1] + expected[2], 0.001);
+        for (double shard : expected) assertTrue(shard >= 12 && shard <= 13, "unbalanced: " + shard);
+        assertEquals(plan.shardOf("Suite", "test(String)[0]"), ShardPlan.balance(durations, 3).shardOf("Suite", "test(String)[0]"));
+    }
+
+    @Test
+    void testTestsWithoutHistoryAreHashed() {
+        ShardPlan plan = ShardPlan.balance(Map.of(ShardPlan.key("Known", "old"), 1.0), 4);
+
+        assertTrue(plan.isKnownClass("Known"));
+        assertFalse(plan.isKnownClass("New"));
+        // a new class stays together, a new test of a known class is placed on its own
+        assertEquals(plan.shardOfClass("New"), plan.shardOf("New", "anyTest"));
+        int shard = plan.shardOf("Known", "newTest");
+        assertTrue(shard >= 1 && shard <= 4);
+        assertEquals(shard, plan.shardOf("Known", "newTest"));
+    }
+
+    @Test
+    void testClassRunsOnlyInShardsWithItsCases() {
+        Map<String, Double> durations = new HashMap<>();
+        durations.put(ShardPlan.key("Suite", "slow"), 10.0);
+        durations.put(ShardPlan.key("Suite", "test(String)[1]"), 1.0);
+        durations.put(ShardPlan.key("Suite", "test(String)[2]"), 1.0);
+        ShardPlan plan = ShardPlan.balance(durations, 4);
+        // LPT puts the three tests into three shards
+        int slow = plan.shardOf("Suite", "slow");
+        int first = plan.shardOf("Suite", "test(String)[1]");
+        int second = plan.shardOf("Suite", "test(String)[2]");
+
+        // a new case of the parameterized test goes with its first recorded one
+        assertEquals(first, plan.shardOf("Suite", "test(String)[3]"));
+        List<String> declared = List.of("slow", "test(String)");
+        for (int shard = 1; shard <= 4; shard++) {
+            assertEquals(shard == slow || shard == first || shard == second, plan.hasCasesInShard("Suite", declared, shard),
+                    "shard " + shard);
+        }
+        // a new test of a known class is placed by its name, its shard runs the class as well
+        int added = plan.shardOf("Suite", "added");
+        assertTrue(plan.hasCasesInShard("Suite", List.of("slow", "test(String)", "added"), added));
+        // a new class runs in the shard of its name only
+        for (int shard = 1; shard <= 4; shard++) {
+            assertEquals(shard == plan.shardOfClass("New"), plan.hasCasesInShard("New", List.of("test"), shard));
+        }
+    }
+
+    @Test
+    void testMergeTakesCasesThatRan(@TempDir Path dir) throws IOException {
+        Path first = Files.createDirectories(dir.resolve("shard1"));
+        Path second = Files.createDirectories(dir.resolve("shard2"));
+        Files.writeString(first.resolve("TEST-Suite.xml"), "<testsuite name=\"Suite\">"
+                + "<testcase name=\"a\" classname=\"Suite\" time=\"1.5\"/>"
+                + "<testcase name=\"b\" classname=\"Suite\" time=\"0\"><skipped message=\"" + ShardReports.OTHER_SHARD + "2 of 2\"/></testcase>"
+                + "</testsuite>");
+        Files.writeString(second.resolve("TEST-Suite.xml"), "<testsuite name=\"Suite\">"
+                + "<testcase name=\"a\" classname=\"Suite\" time=\"0\"><skipped message=\"" + ShardReports.OTHER_SHARD + "1 of 2\"/></testcase>"
+                + "<testcase name=\"b\" classname=\"Suite\" time=\"1,234.5\"><failure message=\"boom\"/></testcase>"
+                + "</testsuite>");
+
+        assertEquals(2, ShardReports.merge(List.of(first, second), dir.resolve("merged")));
+
+        Map<String, Double> durations = ShardReports.readDurations(dir.resolve("merged"));
+        assertEquals(Map.of("Suite#a", 1.5, "Suite#b", 1234.5), durations);
+        String merged = Files.readString(dir.resolve("merged").resolve("TEST-Suite.xml"));
+        assertTrue(merged.contains("failures=\"1\"") && merged.contains("skipped=\"0\""), merged);
+    }
+}
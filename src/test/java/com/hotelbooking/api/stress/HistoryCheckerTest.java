@@ -0,0 +1,104 @@
+package com.hotelbooking.api.stress;
+
+import com.hotelbooking.api.server.BookerStubServer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.hotelbooking.api.stress.HistoryEvent.Type.*;
+import static com.hotelbooking.api.utils.PropertyLoaderUtils.loadProperty;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoryCheckerTest {
+
+    private static HistoryEvent event(HistoryEvent.Type type, long start, long end, int status, String firstname) {
+        Map<String, String> values = null;
+        if (firstname != null) {
+            values = new HashMap<>();
+            values.put("firstname", firstname);
+        }
+        return new HistoryEvent(0, type, 1, start, end, status, values);
+    }
+
+    private static List<HistoryChecker.Kind> kinds(HistoryEvent... history) {
+        return HistoryChecker.check(List.of(history)).stream().map(HistoryChecker.Anomaly::getKind).collect(Collectors.toList());
+    }
+
+    @Test
+    void testConcurrentWritesMayLandInAnyOrder() {
+        // b overlaps c, so either may be the final value; the read during both may see a or b
+        assertEquals(List.of(), kinds(
+                event(CREATE, 0, 1, 200, "a"),
+                event(WRITE, 10, 20, 200, "b"),
+                event(WRITE, 15, 30, 200, "c"),
+                event(READ, 12, 14, 200, "a"),
+                event(READ, 40, 41, 200, "b")));
+    }
+
+    @Test
+    void testAnomalies() {
+        // c was acknowledged after b, but a read after both still returns b, and so does the final one
+        List<HistoryChecker.Kind> lost = kinds(
+                event(CREATE, 0, 1, 200, "a"),
+                event(WRITE, 10, 20, 200, "b"),
+                event(WRITE, 30, 40, 200, "c"),
+                event(READ, 50, 51, 200, "b"));
+        assertTrue(lost.contains(HistoryChecker.Kind.LOST_UPDATE), lost.toString());
+        assertTrue(lost.contains(HistoryChecker.Kind.STALE_READ), lost.toString());
+
+        assertEquals(List.of(HistoryChecker.Kind.RESURRECTED_AFTER_DELETE), kinds(
+                event(CREATE, 0, 1, 200, "a"),
+                event(DELETE, 10, 20, 201, null),
+                event(READ, 30, 31, 200, "a")));
+
+        // a value nobody wrote, and one whose patch was refused
+        assertEquals(List.of(HistoryChecker.Kind.IMPOSSIBLE_READ, HistoryChecker.Kind.IMPOSSIBLE_READ), kinds(
+                event(CREATE, 0, 1, 200, "a"),
+                event(WRITE, 10, 20, 403, "b"),
+                event(READ, 30, 31, 200, "x"),
+                event(READ, 40, 41, 200, "b")));
+    }
+
+    @Test
+    void testWriteWithoutResponseMayApplyLater() {
+        assertEquals(List.of(), kinds(
+                event(CREATE, 0, 1, 200, "a"),
+                event(WRITE, 10, 20, 0, "b"),
+                event(WRITE, 30, 40, 200, "c"),
+                event(READ, 50, 51, 200, "b")));
+    }
+
+    @Test
+    void testStressRun(@TempDir Path dir) {
+        // the stub server applies every patch atomically, so a short run against it has no anomalies.
+        // A server of its own: never the public host, and other tests' traffic doesn't slow the run down
+        BookerStubServer server = new BookerStubServer(loadProperty("admin.user"), loadProperty("admin.password"));
+        server.start(0);
+        List<HistoryChecker.Anomaly> anomalies;
+        try {
+            StressSettings settings = StressSettings.builder()
+                    .threads(8)
+                    .bookings(3)
+                    .duration(Duration.ofSeconds(3))
+                    .mix("get:50,patch:45,delete:5")
+                    .historyFile(dir.resolve("history.jsonl").toString())
+                    .baseUrl(server.getBaseUrl())
+                    .build();
+            anomalies = new StressRunner(settings).run();
+        } finally {
+            server.stop();
+        }
+
+        List<HistoryEvent> history = History.read(dir.resolve("history.jsonl"));
+        assertTrue(history.stream().filter(event -> event.getType() == WRITE).count() > 10);
+        assertEquals(new ArrayList<>(anomalies).toString(), HistoryChecker.check(history).toString());
+        assertEquals(List.of(), anomalies, () -> HistoryChecker.describe(history, anomalies));
+    }
+}